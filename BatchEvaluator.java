@@ -0,0 +1,424 @@
+package bot;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * BatchEvaluator class
+ *
+ * Evaluates many positions at once, for analysis away from the game: for
+ *    each field, it gives the move a bot would make there and a few features
+ *    of the position (see Evaluation).
+ *
+ * Some things to note when interacting with this class.
+ *    Positions do not depend on each other: each one is read from scratch
+ *       and the bot is told the game is over after it (see
+ *       BotStarter.gameOver; SearchBot empties its table there), so it
+ *       does not matter which positions came before it or which thread
+ *       evaluates it.
+ *    The moves of a bot that searches (bot=search) still depend on the
+ *       clock: they are the best found in time=MS, so they can change with
+ *       the time given, the machine and how busy it is. TrapBot's do not.
+ *    Bots keep state between parse and makeTurn, so each thread keeps a bot
+ *       of its own and evaluate(String) can be called from any thread.
+ *       Those bots live as long as the evaluator; close stops any threads
+ *       they keep.
+ *    evaluate(BufferedReader, Writer) reads the positions in chunks,
+ *       evaluates the chunks on a pool of workers and writes the results in
+ *       the order the positions came in, as soon as they are ready. Only a
+ *       few chunks per worker are held at a time, so the input can be as
+ *       long as we like.
+ *
+ * Input: one position per line, a field in the engine's format, optionally
+ *    followed by a space and the id of the player to move (otherwise, the
+ *    player with fewer discs is to move, player 1 if they have as many).
+ *    Blank lines are skipped.
+ * Output: a line of HEADER, then one tab-separated line per position.
+ *    A line that is not a field of the right size has a move of -1 and
+ *    features of 0.
+ *
+ * Usage: java bot.BatchEvaluator [in=FILE] [out=FILE] [threads=N]
+ *          [bot=trap|search] [time=MS] [rows=N] [columns=N] [connect=N]
+ *    reading standard input and writing standard output by default, with
+ *    fields of 6 x 7 where lines of four win.
+ *
+ * @version 10/16/26
+ */
+public class BatchEvaluator {
+
+   public static final String HEADER = "field\tplayer\tmove\tdiscs\tmoves\t" +
+         "wins\tblocks\tthreats\toppThreats\tgoodThreats\toppGoodThreats\t" +
+         "zugzwang\tmoveLines";
+   //positions per task, and tasks per worker waiting to be written
+   private static final int CHUNK = 1024;
+   private static final int CHUNKS_PER_WORKER = 4;
+
+   private final Referee.BotFactory bots;
+   private final int rows;
+   private final int columns;
+   private final int connect;
+   private final int threads;
+   private int time = 100;
+   private final ThreadLocal<Worker> workers = new ThreadLocal<Worker>() {
+      @Override
+      protected Worker initialValue() {
+         Worker worker = new Worker();
+         synchronized (made) {
+            made.add(worker);
+         }
+         return worker;
+      }
+   };
+   //every worker made so far, on any thread, so close can reach their bots
+   private final List<Worker> made = new ArrayList<Worker>();
+
+   /**
+    * @param bots    makes the bot whose moves are given (one per thread)
+    * @param rows    the size of the fields
+    * @param columns
+    * @param connect the number of discs in a line that wins the game
+    * @param threads the number of workers of evaluate(BufferedReader, Writer)
+    */
+   public BatchEvaluator(Referee.BotFactory bots, int rows, int columns,
+         int connect, int threads) {
+      this.bots = bots;
+      this.rows = rows;
+      this.columns = columns;
+      this.connect = connect;
+      this.threads = Math.max(threads, 1);
+   }
+
+   /**
+    * @param millis  the time bank of the bot at every position (only bots
+    *                   that search use it); 100 by default
+    */
+   public void setTime(int millis) {
+      this.time = millis;
+   }
+
+   /**
+    * The move and features of one position.
+    *    Features are from the point of view of the player to move; threats
+    *    are counted as in ThreatAnalyzer.
+    */
+   public static final class Evaluation {
+      public final String field;
+      public final int player;
+      //the bot's move, or -1 if there is none
+      public final int move;
+      public final int discs;
+      //the number of columns that are not full
+      public final int moves;
+      //the number of columns that win at once, for the player and opponent
+      public final int wins;
+      public final int blocks;
+      public final int threats;
+      public final int oppThreats;
+      public final int goodThreats;
+      public final int oppGoodThreats;
+      //the id of the player that controls zugzwang
+      public final int zugzwang;
+      //the lines of four still open through the move (see numPossibleWins)
+      public final int moveLines;
+
+      private Evaluation(String field, int player, int move, int discs,
+            int moves, int wins, int blocks, int threats, int oppThreats,
+            int goodThreats, int oppGoodThreats, int zugzwang,
+            int moveLines) {
+         this.field = field;
+         this.player = player;
+         this.move = move;
+         this.discs = discs;
+         this.moves = moves;
+         this.wins = wins;
+         this.blocks = blocks;
+         this.threats = threats;
+         this.oppThreats = oppThreats;
+         this.goodThreats = goodThreats;
+         this.oppGoodThreats = oppGoodThreats;
+         this.zugzwang = zugzwang;
+         this.moveLines = moveLines;
+      }
+
+      /**
+       * @Postcondition: the evaluation is added to s as a line of output
+       *                    (see HEADER), with its line break
+       */
+      public void appendTo(StringBuilder s) {
+         s.append(this.field).append('\t').append(this.player)
+               .append('\t').append(this.move)
+               .append('\t').append(this.discs)
+               .append('\t').append(this.moves)
+               .append('\t').append(this.wins)
+               .append('\t').append(this.blocks)
+               .append('\t').append(this.threats)
+               .append('\t').append(this.oppThreats)
+               .append('\t').append(this.goodThreats)
+               .append('\t').append(this.oppGoodThreats)
+               .append('\t').append(this.zugzwang)
+               .append('\t').append(this.moveLines).append('\n');
+      }
+
+      @Override
+      public String toString() {
+         StringBuilder s = new StringBuilder();
+         this.appendTo(s);
+         return s.substring(0, s.length() - 1);
+      }
+   }
+
+   /**
+    * A bot of one thread, with the analyzer of its board.
+    */
+   private final class Worker {
+      private final BotStarter bot;
+      private final ThreatAnalyzer threats;
+
+      private Worker() {
+         this.bot = bots.newBot(rows, columns, connect);
+         this.threats = new ThreatAnalyzer(this.bot.getBoard(),
+               this.bot.getLines());
+      }
+
+      private Evaluation evaluate(String line) {
+         int space = line.indexOf(' ');
+         String field = space < 0 ? line : line.substring(0, space);
+         int player = space < 0 ? 0 : parseId(line.substring(space + 1));
+         if (!isField(field) || player < 0) {
+            return new Evaluation(field, player < 0 ? 0 : player, -1, 0, 0,
+                  0, 0, 0, 0, 0, 0, 0, 0);
+         }
+         BotStarter bot = this.bot;
+         bot.parse(field);
+         Bitboard board = bot.getBoard();
+         if (player == 0) {
+            player = Long.bitCount(board.discs(1)) >
+                  Long.bitCount(board.discs(2)) ? 2 : 1;
+         }
+         int opp = 3 - player;
+         bot.myID = player;
+         bot.timebank = time;
+         bot.timePerMove = time;
+         bot.timeLeft = time;
+         int move = board.legalMoves() == 0 ? -1 : bot.makeTurn();
+         //nothing the bot learned here may change the next position's move
+         bot.gameOver();
+         int moveLines = move < 0 ? 0 :
+               bot.numPossibleWins(board.availableRow(move), move);
+         return new Evaluation(field, player, move, board.numDiscs(),
+               Long.bitCount(board.legalMoves()),
+               columnsOf(board, board.winningMoves(player)),
+               columnsOf(board, board.winningMoves(opp)),
+               Long.bitCount(this.threats.threats(player)),
+               Long.bitCount(this.threats.threats(opp)),
+               Long.bitCount(this.threats.goodThreats(player)),
+               Long.bitCount(this.threats.goodThreats(opp)),
+               this.threats.zugzwangControl(), moveLines);
+      }
+   }
+
+   /**
+    * @param line a field in the engine's format, optionally followed by a
+    *             space and the id of the player to move
+    * @return  the evaluation of the position
+    */
+   public Evaluation evaluate(String line) {
+      return this.workers.get().evaluate(line);
+   }
+
+   /**
+    * Evaluates every position of in, on the workers, and writes the results
+    *    to out in the same order (see the top of this class).
+    *
+    * @return  the number of positions evaluated
+    */
+   public long evaluate(BufferedReader in, Writer out) throws IOException,
+         InterruptedException {
+      ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+      Deque<Future<String>> pending = new ArrayDeque<Future<String>>();
+      long count = 0;
+      try {
+         out.write(HEADER);
+         out.write('\n');
+         List<String> chunk;
+         while (!(chunk = readChunk(in)).isEmpty()) {
+            count += chunk.size();
+            final List<String> lines = chunk;
+            pending.add(pool.submit(new Callable<String>() {
+               public String call() {
+                  StringBuilder s = new StringBuilder(lines.size() * 128);
+                  for (String line : lines) {
+                     evaluate(line).appendTo(s);
+                  }
+                  return s.toString();
+               }
+            }));
+            //write the oldest chunk once enough are waiting, so the input
+            //is never read too far ahead of the output
+            if (pending.size() >= this.threads * CHUNKS_PER_WORKER) {
+               out.write(take(pending.poll()));
+            }
+         }
+         while (!pending.isEmpty()) {
+            out.write(take(pending.poll()));
+         }
+         out.flush();
+         return count;
+      } finally {
+         pool.shutdownNow();
+      }
+   }
+
+   /**
+    * @Postcondition: the bots of every worker are closed (see
+    *                 BotStarter.close); the evaluator must not be used again
+    */
+   public void close() {
+      synchronized (this.made) {
+         for (Worker worker : this.made) {
+            worker.bot.close();
+         }
+         this.made.clear();
+      }
+   }
+
+   private static String take(Future<String> chunk)
+         throws InterruptedException {
+      try {
+         return chunk.get();
+      } catch (ExecutionException e) {
+         throw new IllegalStateException(e.getCause());
+      }
+   }
+
+   /**
+    * @return  the next CHUNK lines of in that are not blank (fewer at the
+    *             end, none once in has ended)
+    */
+   private static List<String> readChunk(BufferedReader in)
+         throws IOException {
+      List<String> lines = new ArrayList<String>(CHUNK);
+      String line;
+      while (lines.size() < CHUNK && (line = in.readLine()) != null) {
+         line = line.trim();
+         if (!line.isEmpty()) {
+            lines.add(line);
+         }
+      }
+      return lines;
+   }
+
+   /**
+    * @return  true if the field has rows x columns locations that are each
+    *             0, 1 or 2, in the engine's format
+    */
+   private boolean isField(String field) {
+      if (field.length() != this.rows * this.columns * 2 - 1) {
+         return false;
+      }
+      for (int i = 0; i < field.length(); i++) {
+         char c = field.charAt(i);
+         if (i % 2 == 0) {
+            if (c < '0' || c > '2') {
+               return false;
+            }
+         } else if (c != ((i / 2 + 1) % this.columns == 0 ? ';' : ',')) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * @return  the id, or -1 if it is not 1 or 2
+    */
+   private static int parseId(String id) {
+      id = id.trim();
+      return id.equals("1") ? 1 : id.equals("2") ? 2 : -1;
+   }
+
+   /**
+    * @return  the number of columns with one of the locations in cells
+    */
+   private static int columnsOf(Bitboard board, long cells) {
+      int columns = 0;
+      for (int col = 0; col < board.columns(); col++) {
+         if ((cells & board.columnMask(col)) != 0) {
+            columns++;
+         }
+      }
+      return columns;
+   }
+
+   public static void main(String[] args) throws IOException,
+         InterruptedException {
+      String inPath = null;
+      String outPath = null;
+      int threads = Runtime.getRuntime().availableProcessors();
+      String name = "trap";
+      int time = 100;
+      int rows = 6;
+      int columns = 7;
+      int connect = WinningLines.STANDARD_LENGTH;
+      for (String arg : args) {
+         String value = arg.substring(arg.indexOf('=') + 1);
+         if (arg.startsWith("in=")) {
+            inPath = value;
+         } else if (arg.startsWith("out=")) {
+            outPath = value;
+         } else if (arg.startsWith("threads=")) {
+            threads = Integer.parseInt(value);
+         } else if (arg.startsWith("bot=")) {
+            name = value;
+         } else if (arg.startsWith("time=")) {
+            time = Integer.parseInt(value);
+         } else if (arg.startsWith("rows=")) {
+            rows = Integer.parseInt(value);
+         } else if (arg.startsWith("columns=")) {
+            columns = Integer.parseInt(value);
+         } else if (arg.startsWith("connect=")) {
+            connect = Integer.parseInt(value);
+         }
+      }
+      BatchEvaluator evaluator = new BatchEvaluator(Referee.newBot(name),
+            rows, columns, connect, threads);
+      evaluator.setTime(time);
+      InputStream in = inPath == null ? System.in :
+            new FileInputStream(inPath);
+      OutputStream out = outPath == null ? System.out :
+            new FileOutputStream(outPath);
+      long start = System.nanoTime();
+      long count;
+      try {
+         count = evaluator.evaluate(new BufferedReader(new InputStreamReader(
+               in, StandardCharsets.US_ASCII), 1 << 16),
+               new BufferedWriter(new OutputStreamWriter(out,
+               StandardCharsets.US_ASCII), 1 << 16));
+      } finally {
+         evaluator.close();
+         in.close();
+         out.close();
+      }
+      double seconds = (System.nanoTime() - start) / 1e9;
+      System.err.printf("%d positions in %.1f s (%.0f per second)%n", count,
+            seconds, count / seconds);
+   }
+}
@@ -0,0 +1,678 @@
+package bot;
+
+/**
+ * Bitboard class
+ *
+ * A compact representation of the field using one long per player.
+ *
+ * Some things to note when interacting with this class.
+ *    Each column takes up (rows + 1) bits of a long: one bit per row plus
+ *       an always-empty sentinel bit on top so that shifts never wrap a line
+ *       from one column into the next.
+ *    Within a column, the bits go from the bottom of the field to the top.
+ *       The bit of a location is:
+ *          column * (rows + 1) + (rows - 1 - row)
+ *       where row is the row used by the engine and the rest of this API
+ *       (row 0 is the top of the field).
+ *    Thus the board can only be used for fields where
+ *       (rows + 1) * columns <= 64
+ *    The game is won with a line of connect discs (four unless the board is
+ *       made with another length).
+ *    For lines that are not four long, winningCells works in scratch space of
+ *       the board, so such a board should only be used by one thread at a
+ *       time.
+ *
+ * The game looks the same in a mirror: a position and its mirror image (the
+ *    columns in reverse order) have the same value, and the best move of one
+ *    is the mirror image of the best move of the other. So the board also
+ *    keeps the hash of its mirror image, and canonicalHash and canonicalKey
+ *    give a position and its mirror image the same hash and key: whichever
+ *    of the two is smaller. Caches and books that use them keep one entry
+ *    for both; a move stored with a canonical hash (or key) is mirrored
+ *    (see mirrorColumn) when hashIsMirrored (or keyIsMirrored) says so.
+ *
+ * Lines are found by shifting a player's discs onto themselves:
+ *    shifting by 1 lines up discs vertically,
+ *    shifting by (rows + 1) lines them up horizontally, and
+ *    shifting by rows or (rows + 2) lines them up diagonally.
+ * The standard game (6 x 7, lines of four) is played the most, so it has a
+ *    path of its own with every shift written out as a constant; other
+ *    fields with lines of four share the same steps with the shifts worked
+ *    out from the size, and other lengths loop over the discs of a line.
+ *
+ * @version 10/16/26
+ */
+public class Bitboard {
+
+   private final int rows;
+   private final int columns;
+   //the number of discs in a line that wins the game
+   private final int connect;
+   //true for 6 x 7 with lines of four, which has a path of its own
+   private final boolean standard;
+   //number of bits taken up by one column (including the sentinel bit)
+   private final int height;
+   //one bit at the bottom of each column
+   private final long bottomMask;
+   //every bit that is a location in the field (no sentinel bits)
+   private final long boardMask;
+   //locations whose row is odd (1, 3, 5, ...) or even (0, 2, 4, ...)
+   private final long oddRowsMask;
+   private final long evenRowsMask;
+
+   //discs belonging to the player with the id of 1 and 2
+   private long one;
+   private long two;
+   //the number of discs in each column
+   private final int[] heights;
+   //Zobrist hash of the discs, kept up to date as discs come and go
+   private long hash;
+   //Zobrist hash of the mirror image of the discs
+   private long mirrorHash;
+   //scratch space of winningCells for lines that are not four long: the
+   //locations with i discs in a row before them, and after them
+   private final long[] runsBefore;
+   private final long[] runsAfter;
+
+   /**
+    * A board of the standard game: lines of four win.
+    *
+    * @Precondition: rows and columns are positive and
+    *                (rows + 1) * columns fits in a long; otherwise,
+    *                   throws an IllegalArgumentException
+    * @param rows
+    * @param columns
+    */
+   public Bitboard(int rows, int columns) {
+      this(rows, columns, WinningLines.STANDARD_LENGTH);
+   }
+
+   /**
+    * @Precondition: rows and columns are positive,
+    *                (rows + 1) * columns fits in a long and
+    *                connect is at least 2; otherwise,
+    *                   throws an IllegalArgumentException
+    * @param rows
+    * @param columns
+    * @param connect the number of discs in a line that wins the game
+    */
+   public Bitboard(int rows, int columns, int connect) {
+      if (rows <= 0 || columns <= 0 || (rows + 1) * columns > Long.SIZE ||
+            connect < 2) {
+         throw new IllegalArgumentException();
+      }
+      this.rows = rows;
+      this.columns = columns;
+      this.connect = connect;
+      this.standard = rows == 6 && columns == 7 &&
+            connect == WinningLines.STANDARD_LENGTH;
+      this.height = rows + 1;
+      this.heights = new int[columns];
+      this.runsBefore = new long[connect];
+      this.runsAfter = new long[connect];
+      long bottom = 0L;
+      long board = 0L;
+      long odd = 0L;
+      long even = 0L;
+      for (int col = 0; col < columns; col++) {
+         bottom |= 1L << (col * this.height);
+         for (int row = 0; row < rows; row++) {
+            long bit = this.cell(row, col);
+            board |= bit;
+            if (row % 2 == 1) {
+               odd |= bit;
+            } else {
+               even |= bit;
+            }
+         }
+      }
+      this.bottomMask = bottom;
+      this.boardMask = board;
+      this.oddRowsMask = odd;
+      this.evenRowsMask = even;
+   }
+
+   /**
+    * @Postcondition: the board contains no discs
+    */
+   public void clear() {
+      this.one = 0L;
+      this.two = 0L;
+      this.hash = 0L;
+      this.mirrorHash = 0L;
+      for (int col = 0; col < this.columns; col++) {
+         this.heights[col] = 0;
+      }
+   }
+
+   /**
+    * Places a disc for the player with the given id at the given location.
+    *    Used while reading the field from the engine, so the discs may come
+    *    in any order.
+    *
+    * @Precondition: location is valid and free, and id is 0, 1 or 2;
+    *                otherwise,
+    *                   throws an IllegalArgumentException
+    * @param row
+    * @param col
+    * @param id   0 leaves the location empty
+    */
+   public void set(int row, int col, int id) {
+      if (!this.validLocation(row, col) || id < 0 || id > 2) {
+         throw new IllegalArgumentException();
+      }
+      if (id == 0) {
+         return;
+      }
+      long bit = this.cell(row, col);
+      if ((this.mask() & bit) != 0) {
+         throw new IllegalArgumentException();
+      }
+      if (id == 1) {
+         this.one |= bit;
+      } else {
+         this.two |= bit;
+      }
+      this.hash ^= Zobrist.key(Long.numberOfTrailingZeros(bit), id);
+      this.mirrorHash ^= Zobrist.key(Long.numberOfTrailingZeros(
+            this.cell(row, this.mirrorColumn(col))), id);
+      if (this.rows - row > this.heights[col]) {
+         this.heights[col] = this.rows - row;
+      }
+   }
+
+   /**
+    * Drops a disc for the player with the given id into the given column.
+    *
+    * @Precondition: the column is not full
+    * @param col
+    * @param id   the id of a player (must be 1 or 2)
+    */
+   public void play(int col, int id) {
+      int index = col * this.height + this.heights[col];
+      long bit = 1L << index;
+      this.hash ^= Zobrist.key(index, id);
+      this.mirrorHash ^= Zobrist.key(this.mirrorColumn(col) * this.height +
+            this.heights[col], id);
+      if (id == 1) {
+         this.one |= bit;
+      } else {
+         this.two |= bit;
+      }
+      this.heights[col]++;
+   }
+
+   /**
+    * Takes back the top disc of the given column.
+    *
+    * @Precondition: the column is not empty
+    * @param col
+    */
+   public void undo(int col) {
+      this.heights[col]--;
+      int index = col * this.height + this.heights[col];
+      long bit = 1L << index;
+      int id = (this.one & bit) != 0 ? 1 : 2;
+      this.hash ^= Zobrist.key(index, id);
+      this.mirrorHash ^= Zobrist.key(this.mirrorColumn(col) * this.height +
+            this.heights[col], id);
+      this.one &= ~bit;
+      this.two &= ~bit;
+   }
+
+   /**
+    * @Precondition: other has the same number of rows and columns
+    * @Postcondition: this board holds the same discs as other
+    * @param other
+    */
+   public void copyFrom(Bitboard other) {
+      this.one = other.one;
+      this.two = other.two;
+      this.hash = other.hash;
+      this.mirrorHash = other.mirrorHash;
+      System.arraycopy(other.heights, 0, this.heights, 0, this.columns);
+   }
+
+   /**
+    * @param row
+    * @param col
+    * @return  0: the location belongs to no one
+    *          1: the location belongs to the player with the id of 1
+    *          2: "                                               " 2
+    */
+   public int get(int row, int col) {
+      long bit = this.cell(row, col);
+      if ((this.one & bit) != 0) {
+         return 1;
+      }
+      if ((this.two & bit) != 0) {
+         return 2;
+      }
+      return 0;
+   }
+
+   /**
+    * @return  the field in the engine's format: the locations of each row
+    *             separated by ',' and the rows (top first) by ';'
+    */
+   public String toField() {
+      StringBuilder field = new StringBuilder(this.rows * this.columns * 2);
+      for (int row = 0; row < this.rows; row++) {
+         if (row > 0) {
+            field.append(';');
+         }
+         for (int col = 0; col < this.columns; col++) {
+            if (col > 0) {
+               field.append(',');
+            }
+            field.append((char) ('0' + this.get(row, col)));
+         }
+      }
+      return field.toString();
+   }
+
+   /**
+    * @param row
+    * @param col
+    * @return  a mask with only the bit of the given location set
+    */
+   public long cell(int row, int col) {
+      return 1L << (col * this.height + this.rows - 1 - row);
+   }
+
+   /**
+    * @param bit  the index of a bit in the board (0 to 63)
+    * @return  the column of that bit
+    */
+   public int column(int bit) {
+      return bit / this.height;
+   }
+
+   /**
+    * @param bit  the index of a bit in the board (0 to 63)
+    * @return  the row of that bit
+    */
+   public int row(int bit) {
+      return this.rows - 1 - bit % this.height;
+   }
+
+   /**
+    * @param col
+    * @return  every location in the given column
+    */
+   public long columnMask(int col) {
+      return ((1L << this.rows) - 1) << (col * this.height);
+   }
+
+   /**
+    * @return  the Zobrist hash of the discs on the board
+    */
+   public long hash() {
+      return this.hash;
+   }
+
+   /**
+    * @return  the Zobrist hash of the mirror image of the discs on the board
+    */
+   public long mirrorHash() {
+      return this.mirrorHash;
+   }
+
+   /**
+    * @return  the hash shared by the position and its mirror image: the
+    *             smaller of hash and mirrorHash
+    */
+   public long canonicalHash() {
+      return Math.min(this.hash, this.mirrorHash);
+   }
+
+   /**
+    * @return  true if canonicalHash is the hash of the mirror image, so
+    *             moves stored with it are mirrored
+    */
+   public boolean hashIsMirrored() {
+      return this.mirrorHash < this.hash;
+   }
+
+   /**
+    * A key that is different for every position, unlike the hash.
+    *    In each column, the discs of player 1 are added to a column of ones
+    *    as tall as the column's discs. Columns of different heights land in
+    *    different ranges, so no two positions share a key.
+    *
+    * @return  the unique key of the discs on the board
+    */
+   public long key() {
+      return this.one + this.mask();
+   }
+
+   /**
+    * @return  the key of the mirror image of the discs on the board
+    */
+   public long mirrorKey() {
+      return this.mirror(this.key());
+   }
+
+   /**
+    * @return  the key shared by the position and its mirror image: the
+    *             smaller of key and mirrorKey
+    */
+   public long canonicalKey() {
+      return Math.min(this.key(), this.mirrorKey());
+   }
+
+   /**
+    * @return  true if canonicalKey is the key of the mirror image, so moves
+    *             stored with it are mirrored
+    */
+   public boolean keyIsMirrored() {
+      return this.mirrorKey() < this.key();
+   }
+
+   /**
+    * @param bits a mask of bits of the board (sentinel bits included)
+    * @return  the mask with its columns in reverse order
+    */
+   public long mirror(long bits) {
+      long column = this.height == Long.SIZE ? -1L : (1L << this.height) - 1;
+      long mirrored = 0L;
+      for (int col = 0; col < this.columns; col++) {
+         long bitsOfColumn = (bits >>> (col * this.height)) & column;
+         mirrored |= bitsOfColumn << (this.mirrorColumn(col) * this.height);
+      }
+      return mirrored;
+   }
+
+   /**
+    * @param col
+    * @return  the column in the same place as col in the mirror image
+    */
+   public int mirrorColumn(int col) {
+      return this.columns - 1 - col;
+   }
+
+   /**
+    * @return  the number of discs on the board
+    */
+   public int numDiscs() {
+      return Long.bitCount(this.mask());
+   }
+
+   /**
+    * @param id   the id of a player (must be 1 or 2)
+    * @return  the discs of the player with the given id
+    */
+   public long discs(int id) {
+      return id == 1 ? this.one : this.two;
+   }
+
+   /**
+    * @return  every location that contains a disc
+    */
+   public long mask() {
+      return this.one | this.two;
+   }
+
+   /**
+    * @return  every location that is in the field
+    */
+   public long boardMask() {
+      return this.boardMask;
+   }
+
+   /**
+    * @return  every free location
+    *             i.e. locations that have not been occupied by either player
+    */
+   public long freeMask() {
+      return this.boardMask & ~this.mask();
+   }
+
+   /**
+    * @return  every available location
+    *             i.e. the lowest free location of each column that is not full
+    */
+   public long legalMoves() {
+      return (this.mask() + this.bottomMask) & this.boardMask;
+   }
+
+   /**
+    * @param row
+    * @return  every location in the given row
+    */
+   public long rowMask(int row) {
+      return this.bottomMask << (this.rows - 1 - row);
+   }
+
+   /**
+    * @return  every location in the odd rows (1, 3, 5, ...)
+    */
+   public long oddRows() {
+      return this.oddRowsMask;
+   }
+
+   /**
+    * @return  every location in the even rows (0, 2, 4, ...)
+    */
+   public long evenRows() {
+      return this.evenRowsMask;
+   }
+
+   /**
+    * @param id   the id of a player (must be 1 or 2)
+    * @return  true if the player with the given id has a winning line
+    */
+   public boolean isWin(int id) {
+      return this.hasLine(this.discs(id));
+   }
+
+   /**
+    * @param discs   the discs of one player
+    * @return  true if the discs contain a line of connect discs in any
+    *             direction
+    */
+   public boolean hasLine(long discs) {
+      if (this.standard) {
+         return hasFourStandard(discs);
+      }
+      return this.hasLine(discs, 1) || this.hasLine(discs, this.height) ||
+            this.hasLine(discs, this.height - 1) ||
+            this.hasLine(discs, this.height + 1);
+   }
+
+   private boolean hasLine(long discs, int shift) {
+      if (this.connect == 4) {
+         long pairs = discs & shiftRight(discs, shift);
+         return (pairs & shiftRight(pairs, 2 * shift)) != 0;
+      }
+      //the first disc of every run of connect discs
+      long runs = discs;
+      for (int i = 1; i < this.connect; i++) {
+         runs &= shiftRight(discs, i * shift);
+      }
+      return runs != 0;
+   }
+
+   /**
+    * hasLine for 6 x 7 and lines of four, with the shifts of a column of
+    *    seven bits.
+    */
+   private static boolean hasFourStandard(long discs) {
+      long pairs = discs & (discs >>> 1);
+      if ((pairs & (pairs >>> 2)) != 0) {
+         return true;
+      }
+      pairs = discs & (discs >>> 7);
+      if ((pairs & (pairs >>> 14)) != 0) {
+         return true;
+      }
+      pairs = discs & (discs >>> 6);
+      if ((pairs & (pairs >>> 12)) != 0) {
+         return true;
+      }
+      pairs = discs & (discs >>> 8);
+      return (pairs & (pairs >>> 16)) != 0;
+   }
+
+   /**
+    * A threat mask: every free location that would complete a winning line
+    *    for the player with the given id.
+    * This is the bitboard equivalent of calling positionToWin on every free
+    *    location.
+    *
+    * @param id   the id of a player (must be 1 or 2)
+    * @return  the free locations that win the game for the player
+    */
+   public long winningCells(int id) {
+      long discs = this.discs(id);
+      if (this.standard) {
+         return winningCellsStandard(discs) & this.freeMask();
+      }
+      //vertical: connect - 1 discs directly below
+      long wins = -1L;
+      for (int i = 1; i < this.connect; i++) {
+         wins &= shiftLeft(discs, i);
+      }
+      wins |= this.winningCells(discs, this.height);
+      wins |= this.winningCells(discs, this.height - 1);
+      wins |= this.winningCells(discs, this.height + 1);
+      return wins & this.freeMask();
+   }
+
+   /**
+    * Finds the locations that complete a winning line in one direction.
+    *    The missing disc can be anywhere in the line: for lines of four, at
+    *    either end or either of the two middle locations.
+    */
+   private long winningCells(long discs, int shift) {
+      if (this.connect == 4) {
+         long pair = shiftLeft(discs, shift) & shiftLeft(discs, 2 * shift);
+         long wins = pair & shiftLeft(discs, 3 * shift);
+         wins |= pair & shiftRight(discs, shift);
+         pair = shiftRight(discs, shift) & shiftRight(discs, 2 * shift);
+         wins |= pair & shiftLeft(discs, shift);
+         wins |= pair & shiftRight(discs, 3 * shift);
+         return wins;
+      }
+      long[] before = this.runsBefore;
+      long[] after = this.runsAfter;
+      before[0] = -1L;
+      after[0] = -1L;
+      for (int i = 1; i < this.connect; i++) {
+         before[i] = before[i - 1] & shiftLeft(discs, i * shift);
+         after[i] = after[i - 1] & shiftRight(discs, i * shift);
+      }
+      //the missing disc has i of the line's discs before it, the rest after
+      long wins = 0L;
+      for (int i = 0; i < this.connect; i++) {
+         wins |= before[i] & after[this.connect - 1 - i];
+      }
+      return wins;
+   }
+
+   /**
+    * winningCells for 6 x 7 and lines of four, with the shifts of a column of
+    *    seven bits.
+    */
+   private static long winningCellsStandard(long discs) {
+      //vertical
+      long wins = (discs << 1) & (discs << 2) & (discs << 3);
+      //horizontal
+      long pair = (discs << 7) & (discs << 14);
+      wins |= pair & (discs << 21);
+      wins |= pair & (discs >>> 7);
+      pair = (discs >>> 7) & (discs >>> 14);
+      wins |= pair & (discs << 7);
+      wins |= pair & (discs >>> 21);
+      //diagonal, going down to the right
+      pair = (discs << 6) & (discs << 12);
+      wins |= pair & (discs << 18);
+      wins |= pair & (discs >>> 6);
+      pair = (discs >>> 6) & (discs >>> 12);
+      wins |= pair & (discs << 6);
+      wins |= pair & (discs >>> 18);
+      //diagonal, going up to the right
+      pair = (discs << 8) & (discs << 16);
+      wins |= pair & (discs << 24);
+      wins |= pair & (discs >>> 8);
+      pair = (discs >>> 8) & (discs >>> 16);
+      wins |= pair & (discs << 8);
+      wins |= pair & (discs >>> 24);
+      return wins;
+   }
+
+   //shifts that push every bit out of the long (Java would only shift by
+   //distance % 64)
+   private static long shiftLeft(long bits, int distance) {
+      return distance < Long.SIZE ? bits << distance : 0L;
+   }
+
+   private static long shiftRight(long bits, int distance) {
+      return distance < Long.SIZE ? bits >>> distance : 0L;
+   }
+
+   /**
+    * A stack trap is where a player has two winning locations directly on top
+    *    of each other: if the opponent blocks the bottom one, the player wins
+    *    on top of it.
+    *
+    * @param id   the id of a player (must be 1 or 2)
+    * @return  the bottom location of each of the player's stack traps
+    */
+   public long stackTraps(int id) {
+      long wins = this.winningCells(id);
+      return wins & (wins >>> 1);
+   }
+
+   /**
+    * @param id   the id of a player (must be 1 or 2)
+    * @return  the available locations that win the game immediately for the
+    *             player with the given id
+    */
+   public long winningMoves(int id) {
+      return this.winningCells(id) & this.legalMoves();
+   }
+
+   /**
+    * @param col
+    * @return  the number of discs in the given column
+    */
+   public int heightOf(int col) {
+      return this.heights[col];
+   }
+
+   /**
+    * @param col
+    * @return  the row of the available location in the given column, or
+    *             -1 if the column is full
+    */
+   public int availableRow(int col) {
+      return this.rows - 1 - this.heights[col];
+   }
+
+   /**
+    * @param row
+    * @param column
+    * @return  true if the given location is one that is in our field;
+    *          otherwise, false
+    */
+   public boolean validLocation(int row, int column) {
+      return (row >= 0 && column >= 0 && row < this.rows &&
+            column < this.columns);
+   }
+
+   public int rows() {
+      return this.rows;
+   }
+
+   public int columns() {
+      return this.columns;
+   }
+
+   /**
+    * @return  the number of discs in a line that wins the game
+    */
+   public int connect() {
+      return this.connect;
+   }
+}
@@ -16,7 +16,13 @@
 //    file that was distributed with this source code.
 
 package bot;
-import java.util.Scanner;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
 
 /**
  * MyBot class
@@ -24,53 +30,466 @@ import java.util.Scanner;
  * Main class that will keep reading output from the engine.
  * Will either update the bot state or get actions.
  * 
+ * The engine's lines are read as bytes into buffers that are reused for
+ * every line: commands are matched and numbers and the field are read
+ * straight out of the bytes, and answers are built in a buffer of their own
+ * and written in one go. Handling a line allocates nothing.
+ * 
  * @author Jim van Eeden <jim@starapple.nl>, Joost de Meij <joost@starapple.nl>
  */
 
 public class BotParser {
 
-   final Scanner scan;
+   private static final byte[] SETTINGS = ascii("settings");
+   private static final byte[] UPDATE = ascii("update");
+   private static final byte[] ACTION = ascii("action");
+   private static final byte[] YOUR_BOTID = ascii("your_botid");
+   private static final byte[] TIMEBANK = ascii("timebank");
+   private static final byte[] TIME_PER_MOVE = ascii("time_per_move");
+   private static final byte[] FIELD = ascii("field");
+   private static final byte[] MOVE = ascii("move");
+   private static final byte[] PLACE_DISC = ascii("place_disc ");
+   private static final byte[] UNKNOWN_COMMAND = ascii("unknown command\n");
+   //no command has more words than this; the rest are ignored
+   private static final int MAX_WORDS = 8;
+
+   final InputStream in;
+   final OutputStream out;
    final BotStarter bot;
+   //bytes read from in that are not handled yet
+   private final byte[] input = new byte[8192];
+   private int inputStart;
+   private int inputEnd;
+   //the line being handled, and where each of its words starts and ends
+   private byte[] line = new byte[256];
+   private int length;
+   private final int[] starts = new int[MAX_WORDS];
+   private final int[] ends = new int[MAX_WORDS];
+   private int words;
+   //answers are built in here
+   private final byte[] answer = new byte[32];
+   //the warm-up to stop before the first move, or null
+   private Warmup warmup;
+   //records the game, or null
+   private GameRecorder recorder;
 
    public BotParser(BotStarter bot) {
-      this.scan = new Scanner(System.in);
+      this(bot, System.in, System.out);
+   }
+
+   /**
+    * @param bot
+    * @param in   where the engine's commands come from
+    * @param out  where our answers go
+    */
+   public BotParser(BotStarter bot, InputStream in, OutputStream out) {
+      this.in = in;
+      this.out = out;
       this.bot = bot;
    }
 
+   /**
+    * @param warmup  a warm-up running while we wait for the engine; it is
+    *                   stopped as soon as the engine asks for a move
+    */
+   public void setWarmup(Warmup warmup) {
+      this.warmup = warmup;
+   }
+
+   /**
+    * @param recorder   records the fields we are sent and our answers, or
+    *                      null
+    */
+   public void setRecorder(GameRecorder recorder) {
+      this.recorder = recorder;
+   }
+
    public void run() {
-      while(scan.hasNextLine()) {
-         String line = scan.nextLine();
+      try {
+         while(this.readLine()) {
+            this.handleLine();
+         }
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      } finally {
+         this.stopWarmup();
+         bot.stopPondering();
+         bot.gameOver();
+         if (this.recorder != null) {
+            this.recorder.gameOver();
+         }
+      }
+   }
 
-         if(line.length() == 0) {
-            continue;
+   /**
+    * Reads the next line of in into line, without its line break.
+    * 
+    * @return  false if in has ended and there was no line left; otherwise,
+    *             true
+    * @throws IOException
+    */
+   private boolean readLine() throws IOException {
+      this.length = 0;
+      boolean read = false;
+      while (true) {
+         if (this.inputStart == this.inputEnd) {
+            this.inputStart = 0;
+            this.inputEnd = Math.max(this.in.read(this.input), 0);
+            if (this.inputEnd == 0) {
+               return read;//the last line may not end in a line break
+            }
+         }
+         read = true;
+         byte b = this.input[this.inputStart++];
+         if (b == '\n') {
+            if (this.length > 0 && this.line[this.length - 1] == '\r') {
+               this.length--;
+            }
+            return true;
          }
+         this.append(b);
+      }
+   }
+
+   private void append(byte b) {
+      if (this.length == this.line.length) {
+         byte[] longer = new byte[this.length * 2];
+         System.arraycopy(this.line, 0, longer, 0, this.length);
+         this.line = longer;
+      }
+      this.line[this.length++] = b;
+   }
+
+   /**
+    * Handles one command of the engine, answering it on out if it asks for
+    *    an answer.
+    * 
+    * @param command
+    */
+   public void handle(String command) {
+      this.length = 0;
+      for (int i = 0; i < command.length(); i++) {
+         char c = command.charAt(i);
+         this.append(c < 0x80 ? (byte) c : (byte) '?');
+      }
+      try {
+         this.handleLine();
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
 
-         String[] parts = line.split(" ");
+   private void handleLine() throws IOException {
+      if(this.length == 0) {
+         return;
+      }
+      bot.stopPondering(); /* the engine is talking to us again */
+
+      this.splitWords();
 
-         if(parts[0].equals("settings")) {
-            if (parts[1].equals("your_botid")) {
-               this.bot.myID = Integer.parseInt(parts[2]);
+      if(this.wordIs(0, SETTINGS)) {
+         if (this.wordIs(1, YOUR_BOTID)) {
+            this.bot.myID = this.intWord(2);
+         } else if (this.wordIs(1, TIMEBANK)) {
+            this.bot.timebank = this.intWord(2);
+            this.bot.timeLeft = this.bot.timebank;
+         } else if (this.wordIs(1, TIME_PER_MOVE)) {
+            this.bot.timePerMove = this.intWord(2);
+         }
+      } else if(this.wordIs(0, UPDATE)) { /* new field data */
+         if (this.wordIs(2, FIELD) && this.words > 3) {
+            /* Parse Field with data */
+            bot.parse(this.line, this.starts[3], this.ends[3]);
+            if (this.recorder != null) {
+               this.recorder.field();
             }
-         } else if(parts[0].equals("update")) { /* new field data */
-            if (parts[2].equals("field")) {
-               String data = parts[3];
-               bot.parse(data);  /* Parse Field with data */
+         }
+      } else if(this.wordIs(0, ACTION)) {
+         if (this.wordIs(1, MOVE)) { /* move requested */
+            this.stopWarmup(); /* the clock is running */
+            if (this.words > 2) { /* time left in the time bank */
+               this.bot.timeLeft = this.intWord(2);
             }
-         } else if(parts[0].equals("action")) {
-            if (parts[1].equals("move")) { /* move requested */
-               int column = bot.makeTurn();
-               System.out.println("place_disc " + column);
+            long start = this.recorder != null ? System.nanoTime() : 0;
+            int column = bot.chooseMove();
+            /* only chooseMove is timed, not the write to the engine */
+            long micros = this.recorder != null ?
+                  (System.nanoTime() - start) / 1000 : 0;
+            this.writeMove(column);
+            if (this.recorder != null) { /* after the answer is on its way */
+               this.recorder.move(column, micros, this.bot.timeLeft);
             }
+            bot.ponder(column);  /* think on the opponent's time */
          }
-         else { 
-            System.out.println("unknown command");
+      }
+      else { 
+         out.write(UNKNOWN_COMMAND);
+         out.flush();
+      }
+   }
+
+   private void stopWarmup() {
+      if (this.warmup != null) {
+         this.warmup.stop();
+         this.warmup = null;
+      }
+   }
+
+   /**
+    * Finds the words of line, which are separated by spaces.
+    */
+   private void splitWords() {
+      this.words = 0;
+      int i = 0;
+      while (i < this.length && this.words < MAX_WORDS) {
+         while (i < this.length && this.line[i] == ' ') {
+            i++;
+         }
+         if (i == this.length) {
+            break;
          }
+         this.starts[this.words] = i;
+         while (i < this.length && this.line[i] != ' ') {
+            i++;
+         }
+         this.ends[this.words++] = i;
       }
    }
+
+   /**
+    * @param word    the index of a word of line
+    * @param text
+    * @return  true if line has that word and it is the given text
+    */
+   private boolean wordIs(int word, byte[] text) {
+      if (word >= this.words ||
+            this.ends[word] - this.starts[word] != text.length) {
+         return false;
+      }
+      for (int i = 0; i < text.length; i++) {
+         if (this.line[this.starts[word] + i] != text[i]) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * @Precondition: the word is there and is a whole number that fits in
+    *                   an int; otherwise, throws a NumberFormatException
+    * @param word    the index of a word of line
+    * @return  the number the word stands for
+    */
+   private int intWord(int word) {
+      if (word >= this.words) {
+         throw new NumberFormatException("missing number");
+      }
+      int i = this.starts[word];
+      int end = this.ends[word];
+      boolean negative = this.line[i] == '-';
+      if (negative) {
+         i++;
+      }
+      if (i == end) {
+         throw new NumberFormatException("not a number");
+      }
+      //the number is built up negative (as Integer.parseInt does), since
+      //Integer.MIN_VALUE has no positive int to build it from
+      int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+      int value = 0;
+      for (; i < end; i++) {
+         int digit = this.line[i] - '0';
+         if (digit < 0 || digit > 9) {
+            throw new NumberFormatException("not a number");
+         }
+         if (value < limit / 10 || value * 10 < limit + digit) {
+            throw new NumberFormatException("out of the range of an int");
+         }
+         value = value * 10 - digit;
+      }
+      return negative ? value : -value;
+   }
+
+   /**
+    * Writes "place_disc column" and a line break to out.
+    * 
+    * @param column
+    * @throws IOException
+    */
+   private void writeMove(int column) throws IOException {
+      System.arraycopy(PLACE_DISC, 0, this.answer, 0, PLACE_DISC.length);
+      int n = PLACE_DISC.length;
+      if (column < 0) {
+         this.answer[n++] = '-';
+         column = -column;
+      }
+      int digits = 1;
+      for (int c = column; c >= 10; c /= 10) {
+         digits++;
+      }
+      for (int i = n + digits - 1; i >= n; i--) {
+         this.answer[i] = (byte) ('0' + column % 10);
+         column /= 10;
+      }
+      n += digits;
+      this.answer[n++] = '\n';
+      out.write(this.answer, 0, n);
+      out.flush();
+   }
+
+   private static byte[] ascii(String text) {
+      byte[] bytes = new byte[text.length()];
+      for (int i = 0; i < bytes.length; i++) {
+         bytes[i] = (byte) text.charAt(i);
+      }
+      return bytes;
+   }
    
+   /**
+    * @param args "search" to play with SearchBot, "mcts" to play with
+    *                MctsBot; otherwise, TrapBot plays
+    *             "ponder" to let SearchBot think on the opponent's time
+    *             "threads=N" to let SearchBot or MctsBot search on N threads
+    *             "book=PATH" to play the opening from an OpeningBook
+    *             "cache=PATH" to play positions seen in earlier games as
+    *                before, keeping the moves in a file (see ResultCache);
+    *                TrapBot only, since the others' moves depend on the clock
+    *             "profile" to report how TrapBot's turns went to
+    *                System.err at the end of the game (see TurnProfiler),
+    *                or MctsBot's playouts per second;
+    *                "profile=PATH" to add the report to a file instead
+    *             "rows=N", "columns=N" and "connect=N" to play on another
+    *                field than 6 x 7, or to win with lines of another length
+    *                than four
+    *             "warmup=MILLIS" to warm the bot up for at most that long
+    *                while waiting for the engine's first "action move" (see
+    *                Warmup); "warmup=0" to play cold
+    *             "record=PATH" to add the games to a rolling log (see
+    *                GameLog) that GameReplay can play again
+    */
    public static void main(String [] args) {
-      BotStarter bot = new TrapBot(6,7);
+      boolean search = false;
+      boolean mcts = false;
+      boolean ponder = false;
+      int threads = 1;
+      String bookPath = null;
+      String cachePath = null;
+      String profile = null;
+      int rows = 6;
+      int columns = 7;
+      int connect = WinningLines.STANDARD_LENGTH;
+      long warmup = Warmup.DEFAULT_MILLIS;
+      String recordPath = null;
+      for (String arg : args) {
+         if (arg.equals("search")) {
+            search = true;
+         } else if (arg.equals("mcts")) {
+            mcts = true;
+         } else if (arg.equals("ponder")) {
+            ponder = true;
+         } else if (arg.startsWith("threads=")) {
+            threads = Integer.parseInt(arg.substring("threads=".length()));
+         } else if (arg.startsWith("book=")) {
+            bookPath = arg.substring("book=".length());
+         } else if (arg.startsWith("cache=")) {
+            cachePath = arg.substring("cache=".length());
+         } else if (arg.equals("profile")) {
+            profile = "";
+         } else if (arg.startsWith("profile=")) {
+            profile = arg.substring("profile=".length());
+         } else if (arg.startsWith("rows=")) {
+            rows = Integer.parseInt(arg.substring("rows=".length()));
+         } else if (arg.startsWith("columns=")) {
+            columns = Integer.parseInt(arg.substring("columns=".length()));
+         } else if (arg.startsWith("connect=")) {
+            connect = Integer.parseInt(arg.substring("connect=".length()));
+         } else if (arg.startsWith("warmup=")) {
+            warmup = Long.parseLong(arg.substring("warmup=".length()));
+         } else if (arg.startsWith("record=")) {
+            recordPath = arg.substring("record=".length());
+         }
+      }
+      BotStarter bot;
+      if (mcts) {
+         MctsBot mctsBot = new MctsBot(rows, columns, connect,
+               MonteCarloSearch.DEFAULT_NODES, threads);
+         if (profile != null) {
+            mctsBot.setReport(profileStream(profile));
+         }
+         bot = mctsBot;
+      } else if (search) {
+         SearchBot searchBot = new SearchBot(rows, columns, connect,
+               SearchBot.DEFAULT_TABLE_MEGABYTES, threads);
+         searchBot.setPondering(ponder);
+         bot = searchBot;
+      } else {
+         TrapBot trapBot = new TrapBot(rows, columns, connect);
+         if (profile != null) {
+            trapBot.setProfiler(new TurnProfiler(TrapBot.STAGES,
+                  profileStream(profile)));
+         }
+         bot = trapBot;
+      }
+      if (bookPath != null) {
+         try {
+            bot.setOpeningBook(new OpeningBook(new File(bookPath)));
+         } catch (IOException e) {
+            /* play without the book rather than not at all */
+            System.err.println("could not load opening book: " + e.getMessage());
+         }
+      }
+      String name = mcts ? "mcts" : search ? "search" : "trap";
+      if (cachePath != null && !ResultCache.canCache(name)) {
+         /* a move found in a hurry would be played from the cache for good */
+         System.err.println("no result cache for " + name +
+               ": its moves depend on the clock");
+      } else if (cachePath != null) {
+         try {
+            bot.setResultCache(ResultCache.open(new File(cachePath), name,
+                  rows, columns, connect, ResultCache.DEFAULT_CAPACITY));
+         } catch (IOException e) {
+            /* play without the cache rather than not at all */
+            System.err.println("could not load result cache: " +
+                  e.getMessage());
+         }
+      }
       BotParser parser = new BotParser(bot);
-      parser.run();
+      if (warmup > 0) {
+         /* the first moves would be played by the interpreter otherwise */
+         Warmup warm = new Warmup(Warmup.newBot(name), rows, columns,
+               connect, warmup);
+         warm.start();
+         parser.setWarmup(warm);
+      }
+      GameLog log = null;
+      if (recordPath != null) {
+         log = new GameLog(new File(recordPath), GameLog.DEFAULT_MAX_BYTES,
+               GameLog.DEFAULT_FILES);
+         parser.setRecorder(new GameRecorder(log, bot));
+      }
+      try {
+         parser.run();
+      } finally {
+         bot.close();
+         if (log != null) {
+            log.close();
+         }
+      }
+   }
+
+   /**
+    * @param path the file to add reports to, or "" for System.err
+    * @return  where the reports go; System.out is never one of them (the
+    *             engine reads our moves from there)
+    */
+   private static PrintStream profileStream(String path) {
+      if (!path.isEmpty()) {
+         try {
+            return new PrintStream(new FileOutputStream(path, true), true);
+         } catch (IOException e) {
+            System.err.println("could not open profile: " + e.getMessage());
+         }
+      }
+      return System.err;
    }
 }
\ No newline at end of file
@@ -0,0 +1,336 @@
+package bot;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * BotServer class
+ *
+ * Plays many games at once in one JVM: every connection to the server's
+ *    port is a game, spoken in the engine's protocol (what BotParser reads
+ *    from System.in and writes to System.out goes over the connection
+ *    instead). A game ends when the other side closes the connection.
+ *
+ * Some things to note when interacting with this class.
+ *    Every game has a bot of its own (from the server's Referee.BotFactory)
+ *       and a BotParser of its own, run on a thread of its own, so games
+ *       never share any state that changes.
+ *    What never changes is shared by all the games: the WinningLines of a
+ *       size, the Zobrist keys and the OpeningBook (if there is one) are
+ *       loaded once, and the JIT compiles the bots' code once (during a
+ *       Warmup before the first connection is accepted), so every game
+ *       starts warm.
+ *    A ResultCache (if there is one) is shared too: a position worked out
+ *       in one game is answered at once in every game after it. So is a
+ *       GameLog (if there is one): every game is recorded to the same log.
+ *    The server only listens on the loopback address: it is meant for an
+ *       engine (or a Referee) on the same host.
+ *    At most maxGames games are played at once; connections past that are
+ *       closed at once. A TrapBot game needs little memory, so thousands
+ *       fit; a SearchBot game keeps a TranspositionTable of its own and an
+ *       MctsBot game a pool of nodes, so fewer of those do (see
+ *       defaultMaxGames).
+ *
+ * Usage: java bot.BotServer [port=N] [bot=trap|search|ponder|mcts]
+ *          [book=PATH] [cache=PATH] [record=PATH] [games=N] [warmup=MILLIS]
+ *          [rows=N] [columns=N] [connect=N]
+ *    e.g. java bot.BotServer port=4040 games=2000
+ *    (games=N defaults to defaultMaxGames of the bot)
+ *
+ * @version 10/16/26
+ */
+public class BotServer {
+
+   public static final int DEFAULT_PORT = 4040;
+   public static final int DEFAULT_MAX_GAMES = 4096;
+   //idle game threads are kept this long for the next game
+   private static final long KEEP_ALIVE_SECONDS = 60;
+
+   private final Referee.BotFactory bots;
+   private final int rows;
+   private final int columns;
+   private final int connect;
+   private final ServerSocket server;
+   private final ThreadPoolExecutor pool;
+   private OpeningBook book;
+   private ResultCache results;
+   private GameLog log;
+   private final AtomicInteger active = new AtomicInteger();
+   private final AtomicLong played = new AtomicLong();
+
+   /**
+    * @Precondition: the port is free; otherwise, throws an IOException
+    * @param bots    makes the bot of every game
+    * @param rows
+    * @param columns
+    * @param connect the number of discs in a line that wins the game
+    * @param port    the port to listen on (0 for any free port)
+    * @param maxGames   the most games to play at once
+    * @throws IOException
+    */
+   public BotServer(Referee.BotFactory bots, int rows, int columns,
+         int connect, int port, int maxGames) throws IOException {
+      this.bots = bots;
+      this.rows = rows;
+      this.columns = columns;
+      this.connect = connect;
+      this.server = new ServerSocket(port, maxGames,
+            InetAddress.getLoopbackAddress());
+      final AtomicInteger games = new AtomicInteger();
+      this.pool = new ThreadPoolExecutor(0, maxGames, KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+            new ThreadFactory() {
+               public Thread newThread(Runnable task) {
+                  Thread thread = new Thread(task,
+                        "game-" + games.incrementAndGet());
+                  thread.setDaemon(true);
+                  return thread;
+               }
+            });
+      //the tables every game shares are made before the first game
+      WinningLines.forSize(rows, columns, connect);
+   }
+
+   /**
+    * @param name the bot of every game (see Referee.newBot)
+    * @return  the most games to play at once unless told otherwise:
+    *             DEFAULT_MAX_GAMES, or as many as have room for their tables
+    *             (or pools of nodes) in half the heap, if that is fewer
+    */
+   public static int defaultMaxGames(String name) {
+      long bytes;
+      if (name.equals("search") || name.equals("ponder")) {
+         bytes = (long) SearchBot.DEFAULT_TABLE_MEGABYTES * 1024 * 1024;
+      } else if (name.equals("mcts")) {
+         bytes = (long) MonteCarloSearch.DEFAULT_NODES *
+               MonteCarloSearch.NODE_BYTES;
+      } else {
+         return DEFAULT_MAX_GAMES;
+      }
+      //the other half is for everything else, and for the collector
+      long games = Runtime.getRuntime().maxMemory() / 2 / bytes;
+      return (int) Math.max(1, Math.min(games, DEFAULT_MAX_GAMES));
+   }
+
+   /**
+    * @param book the book every game plays the opening from, or null
+    */
+   public void setOpeningBook(OpeningBook book) {
+      this.book = book;
+   }
+
+   /**
+    * @param results the moves of earlier games every game plays from and
+    *                   adds to, or null
+    */
+   public void setResultCache(ResultCache results) {
+      this.results = results;
+   }
+
+   /**
+    * @param log  where every game is recorded, or null
+    */
+   public void setGameLog(GameLog log) {
+      this.log = log;
+   }
+
+   /**
+    * Accepts connections and plays a game on each one, until close is
+    *    called.
+    *
+    * @throws IOException  if the server cannot accept connections
+    */
+   public void serve() throws IOException {
+      while (true) {
+         final Socket socket;
+         try {
+            socket = this.server.accept();
+         } catch (SocketException e) {
+            if (this.server.isClosed()) {
+               return;//closed
+            }
+            throw e;
+         }
+         try {
+            this.pool.execute(new Runnable() {
+               public void run() {
+                  BotServer.this.play(socket);
+               }
+            });
+         } catch (RejectedExecutionException e) {
+            //as many games as we can play are being played
+            closeQuietly(socket);
+         }
+      }
+   }
+
+   /**
+    * Plays one game over the given connection, then closes it.
+    */
+   private void play(Socket socket) {
+      this.active.incrementAndGet();
+      BotStarter bot = null;
+      try {
+         //answers are a line each, written whole: send them at once
+         socket.setTcpNoDelay(true);
+         bot = this.bots.newBot(this.rows, this.columns, this.connect);
+         if (this.book != null) {
+            bot.setOpeningBook(this.book);
+         }
+         if (this.results != null) {
+            bot.setResultCache(this.results);
+         }
+         BotParser parser = new BotParser(bot, socket.getInputStream(),
+               socket.getOutputStream());
+         if (this.log != null) {
+            parser.setRecorder(new GameRecorder(this.log, bot));
+         }
+         parser.run();
+      } catch (IOException e) {
+         System.err.println("game lost its connection: " + e.getMessage());
+      } catch (UncheckedIOException e) {
+         System.err.println("game lost its connection: " +
+               e.getCause().getMessage());
+      } catch (RuntimeException e) {
+         System.err.println("game ended badly: " + e);
+      } finally {
+         if (bot != null) {
+            bot.close();
+         }
+         closeQuietly(socket);
+         this.active.decrementAndGet();
+         this.played.incrementAndGet();
+      }
+   }
+
+   private static void closeQuietly(Socket socket) {
+      try {
+         socket.close();
+      } catch (IOException e) {
+         //it is closed either way
+      }
+   }
+
+   /**
+    * @return  the port the server listens on
+    */
+   public int getPort() {
+      return this.server.getLocalPort();
+   }
+
+   /**
+    * @return  the number of games being played
+    */
+   public int getActiveGames() {
+      return this.active.get();
+   }
+
+   /**
+    * @return  the number of games that have ended
+    */
+   public long getPlayedGames() {
+      return this.played.get();
+   }
+
+   /**
+    * @Postcondition: no more connections are accepted; the games being
+    *                 played go on until their connections close
+    */
+   public void close() throws IOException {
+      this.server.close();
+      this.pool.shutdown();
+   }
+
+   public static void main(String[] args) throws IOException {
+      int port = DEFAULT_PORT;
+      int maxGames = -1;
+      String name = "trap";
+      String bookPath = null;
+      String cachePath = null;
+      String recordPath = null;
+      int rows = 6;
+      int columns = 7;
+      int connect = WinningLines.STANDARD_LENGTH;
+      long warmup = Warmup.DEFAULT_MILLIS;
+      for (String arg : args) {
+         String value = arg.substring(arg.indexOf('=') + 1);
+         if (arg.startsWith("port=")) {
+            port = Integer.parseInt(value);
+         } else if (arg.startsWith("bot=")) {
+            name = value;
+         } else if (arg.startsWith("book=")) {
+            bookPath = value;
+         } else if (arg.startsWith("cache=")) {
+            cachePath = value;
+         } else if (arg.startsWith("record=")) {
+            recordPath = value;
+         } else if (arg.startsWith("games=")) {
+            maxGames = Integer.parseInt(value);
+         } else if (arg.startsWith("warmup=")) {
+            warmup = Long.parseLong(value);
+         } else if (arg.startsWith("rows=")) {
+            rows = Integer.parseInt(value);
+         } else if (arg.startsWith("columns=")) {
+            columns = Integer.parseInt(value);
+         } else if (arg.startsWith("connect=")) {
+            connect = Integer.parseInt(value);
+         }
+      }
+      if (maxGames < 0) {
+         maxGames = defaultMaxGames(name);
+      }
+      BotServer server = new BotServer(Referee.newBot(name), rows, columns,
+            connect, port, maxGames);
+      if (bookPath != null) {
+         try {
+            server.setOpeningBook(new OpeningBook(new File(bookPath)));
+         } catch (IOException e) {
+            //play without the book rather than not at all
+            System.err.println("could not load opening book: " +
+                  e.getMessage());
+         }
+      }
+      if (cachePath != null && !ResultCache.canCache(name)) {
+         //a move found in a hurry would be played from the cache for good
+         System.err.println("no result cache for " + name +
+               ": its moves depend on the clock");
+      } else if (cachePath != null) {
+         try {
+            server.setResultCache(ResultCache.open(new File(cachePath), name,
+                  rows, columns, connect, ResultCache.DEFAULT_CAPACITY));
+         } catch (IOException e) {
+            //play without the cache rather than not at all
+            System.err.println("could not load result cache: " +
+                  e.getMessage());
+         }
+      }
+      GameLog log = null;
+      if (recordPath != null) {
+         log = new GameLog(new File(recordPath), GameLog.DEFAULT_MAX_BYTES,
+               GameLog.DEFAULT_FILES);
+         server.setGameLog(log);
+      }
+      new Warmup(Warmup.newBot(name), rows, columns, connect, warmup).run();
+      System.err.println("playing on port " + server.getPort() +
+            ", at most " + maxGames + " games at once");
+      try {
+         server.serve();
+      } finally {
+         if (log != null) {
+            log.close();
+         }
+      }
+   }
+}
@@ -17,6 +17,7 @@
 
 package bot;
 
+import java.io.IOException;
 import java.util.*;
 /**
  * BotStarter class
@@ -28,6 +29,8 @@ import java.util.*;
  * Some things to note when interacting with this API.
  *    Lines of four are represented by 2D arrays of Integer objects:
  *    The matrix has dimensions of 4 x 2: i.e. 4 rows of 2 columns.
+ *       (In a game won with lines of another length, there is a row for
+ *       each location of the line.)
  *       The first column is the column of the locations in the line
  *       The second column is the row of the locations in the line
  *    Thus, the way someone would find a location in the line would be:
@@ -36,6 +39,9 @@ import java.util.*;
  *                line[i][1] represents the row
  *       It is kept column first and row second because it makes implementation
  *          easier.
+ *    The same lines are also available without allocating through getLines():
+ *       there each line is an int id into a WinningLines table that is built
+ *       once per field size.
  * 
  * @author Jim van Eeden <jim@starapple.nl>, Joost de Meij <joost@starapple.nl>
  * @author Ryan Pachauri
@@ -45,19 +51,50 @@ import java.util.*;
 public abstract class BotStarter {
    
    /*
-    * 2D int array that keeps track of the location of the discs and who they
+    * Bitboard that keeps track of the location of the discs and who they
     *    belong to:
     *       0: belongs to no one
     *       1: belongs to the player with the id of 1
     *       2: "                                  " 2
     */
-   private int[][] field;
-   public Map<Integer,Integer> availableMoves;
+   private final Bitboard board;
+   //every line of four in the field, shared between bots of the same size
+   private final WinningLines lines;
+   //tokens of each player in each line, kept up to date by parse
+   private final LineCounts counts;
+   //moves worked out ahead of time for the opening, or null
+   private OpeningBook book;
+   //moves chosen in earlier games, or null
+   private ResultCache results;
+   //parse(String) copies the field in here, to share parse(byte[]...)
+   private byte[] fieldBytes = new byte[128];
+   //the columns that are not full and the row a disc lands in for each
+   public final CandidateMoves availableMoves;
    public int myID;
+   /*
+    * Time in milliseconds, as given by the engine:
+    *    timebank:    what the time bank starts with
+    *    timePerMove: what is added to the time bank every move
+    *    timeLeft:    what is left in the time bank for the current move
+    */
+   public int timebank = 10000;
+   public int timePerMove = 500;
+   public int timeLeft = 10000;
    
    public BotStarter(int rows, int columns) {
-      this.field = new int[rows][columns];
-      this.availableMoves = new HashMap<Integer,Integer>();
+      this(rows, columns, WinningLines.STANDARD_LENGTH);
+   }
+   
+   /**
+    * @param rows
+    * @param columns
+    * @param connect the number of discs in a line that wins the game
+    */
+   public BotStarter(int rows, int columns, int connect) {
+      this.board = new Bitboard(rows, columns, connect);
+      this.lines = WinningLines.forSize(rows, columns, connect);
+      this.counts = new LineCounts(this.lines);
+      this.availableMoves = new CandidateMoves(columns);
    }
    
    /**
@@ -67,39 +104,212 @@ public abstract class BotStarter {
    public abstract int makeTurn();
    
    /**
+    * Plays from the opening book while the position is in it; otherwise,
+    *    plays what was chosen in the position in an earlier game (if there
+    *    is a ResultCache); otherwise, asks makeTurn (and remembers its
+    *    answer in the cache).
+    * 
+    * @return  int the column to place a disc
+    */
+   public int chooseMove() {
+      if (this.book != null) {
+         int column = this.book.lookup(this.board);
+         if (this.isLegal(column)) {
+            return column;
+         }
+      }
+      if (this.results == null) {
+         return this.makeTurn();
+      }
+      int column = this.results.get(this.board, this.myID);
+      if (this.isLegal(column)) {
+         return column;
+      }
+      column = this.makeTurn();
+      if (this.isLegal(column)) {
+         this.results.put(this.board, this.myID, column);
+      }
+      return column;
+   }
+   
+   private boolean isLegal(int column) {
+      return column >= 0 && column < this.board.columns() &&
+            (this.board.legalMoves() & this.board.columnMask(column)) != 0;
+   }
+   
+   /**
+    * @param book the opening book to play from, or null to play without one
+    */
+   public void setOpeningBook(OpeningBook book) {
+      this.book = book;
+   }
+   
+   /**
+    * @param results the moves of earlier games to play from and add to, or
+    *                   null to play without them
+    */
+   public void setResultCache(ResultCache results) {
+      this.results = results;
+   }
+   
+   /**
+    * Called right after our move was sent, while the opponent thinks.
+    *    Bots that can use the opponent's time override this; by default it
+    *    does nothing.
+    * 
+    * @param column  the column we just placed a disc in
+    */
+   public void ponder(int column) {
+   }
+   
+   /**
+    * Called before anything new from the engine is handled.
+    * @Postcondition: nothing started by ponder is still running
+    */
+   public void stopPondering() {
+   }
+
+   /**
+    * Called from another thread to cut the makeTurn that is running (if
+    *    any) short. Bots that think for as long as the clock lets them
+    *    override this; by default it does nothing, since TrapBot's rules
+    *    answer quickly anyway.
+    * @Postcondition: makeTurn answers at once, with the best move found so
+    *                 far, from now on: the bot is only fit to be thrown away
+    */
+   public void cancel() {
+   }
+
+   /**
+    * Called once the bot will play no more games. Bots that keep threads
+    *    of their own override this; by default it does nothing.
+    * @Postcondition: the bot holds no threads; it must not play again
+    */
+   public void close() {
+   }
+
+   /**
+    * Called once the game is over (the engine stopped talking to us).
+    *    Writes the moves this game added to the ResultCache to its file.
+    *    Bots that keep track of the game override this (and call it).
+    */
+   public void gameOver() {
+      if (this.results != null) {
+         try {
+            this.results.flush();
+         } catch (IOException e) {
+            /* the moves are still in the cache; the next game tries again */
+            System.err.println("could not save results: " + e.getMessage());
+         }
+      }
+   }
+   
+   /**
+    * Only the discs that were not in the field before are placed, so a turn
+    *    usually costs one or two discs instead of the whole field.
+    *    If a disc was taken away or changed (i.e. a new game started), the
+    *    field is reset and read from scratch.
+    * 
     * @Postcondition:
-    *    1. Resets the field based on the data received
+    *    1. Updates the field based on the data received
     *    2. Resets the availableMoves because there are new possible moves
     * @param s
     */
    public void parse(String s) {
-      String[] rows = s.split(";");
-      for (int row = 0; row < rows.length; row++) {
-         String[] columns = rows[row].split(",");
-         for (int col = 0; col < columns.length; col++) {
-            this.field[row][col] = Integer.parseInt(columns[col]);
-         }
+      if (this.fieldBytes.length < s.length()) {
+         this.fieldBytes = new byte[s.length()];
+      }
+      for (int i = 0; i < s.length(); i++) {
+         char c = s.charAt(i);
+         //anything that is not ASCII is not part of a field
+         this.fieldBytes[i] = c < 0x80 ? (byte) c : (byte) '?';
+      }
+      this.parse(this.fieldBytes, 0, s.length());
+   }
+   
+   /**
+    * Same as parse(String), but reads the field straight out of the bytes
+    *    the engine sent, so nothing is allocated.
+    * 
+    * @param field   holds the field in the engine's format (ASCII)
+    * @param start   the index of the first byte of the field
+    * @param end     the index after the last byte of the field
+    */
+   public void parse(byte[] field, int start, int end) {
+      if (!this.applyField(field, start, end)) {
+         this.board.clear();
+         this.counts.clear();
+         this.applyField(field, start, end);
       }
       this.setAvailableMoves();
    }
    
    /**
-    * @Precondition: There is at least one open space in the field; otherwise,
-    *                   prints out to console that there are no more spaces
-    *                availableMoves might be already full
-    * @return  A Map of Integers to Integers where
-    *             K: the column
-    *             V: the row
+    * Reads the field in the engine's format (columns separated by ',' and
+    *    rows by ';') and places every disc that is not on the board yet.
+    * 
+    * @Precondition: the field only contains digits, ',' and ';'; otherwise,
+    *                   throws an IllegalArgumentException
+    * @param field
+    * @param start
+    * @param end
+    * @return  false if the field takes away or changes a disc already on the
+    *             board; otherwise, true
     */
-   private void setAvailableMoves() {
-      this.availableMoves.clear();
-      for (int i = 0; i < this.field[0].length; i++) {//traverses the first row
-         for (int j = 0; j < this.field.length; j++) {//traverses the columns
-            if (this.field[j][i] == 0) {//j is row; i is col
-               this.availableMoves.put((Integer)i, (Integer) j);
+   private boolean applyField(byte[] field, int start, int end) {
+      int row = 0;
+      int col = 0;
+      int id = 0;
+      for (int i = start; i <= end; i++) {
+         int c = i < end ? field[i] : ';';
+         if (c == ',' || c == ';') {
+            int old = this.board.get(row, col);
+            if (old != id) {
+               if (old != 0) {
+                  return false;
+               }
+               this.placeDisc(row, col, id);
+            }
+            id = 0;
+            col++;
+            if (c == ';') {
+               row++;
+               col = 0;
             }
+         } else if (c >= '0' && c <= '9') {
+            id = id * 10 + c - '0';
+         } else {
+            throw new IllegalArgumentException();
          }
       }
+      return true;
+   }
+   
+   private void placeDisc(int row, int col, int id) {
+      this.board.set(row, col, id);
+      this.counts.add(row, col, id);
+   }
+   
+   /**
+    * @return  the Bitboard of the field last given to parse
+    */
+   public Bitboard getBoard() {
+      return this.board;
+   }
+   
+   /**
+    * @return  the lines of four of a field of this size
+    */
+   public WinningLines getLines() {
+      return this.lines;
+   }
+   
+   /**
+    * @Postcondition: availableMoves holds each column that is not full and
+    *                   its available row
+    */
+   void setAvailableMoves() {
+      this.availableMoves.update(this.board);
    }
    
    /**
@@ -131,17 +341,11 @@ public abstract class BotStarter {
       if (!this.validLocation(row, column)) {
          throw new IllegalArgumentException();
       }
-      Set<Integer[][]> wins =
-            this.getPossibleWins(row, column, id);
-      for (Integer[][] line : wins) {
-         //number of tokens belonging to player of id equals 3
-         //i.e. 3 out of 4 tokens in this line are already in place
-         //     the 4th being the available location we are looking at
-         if (this.numTokensInLine(line, id) == 3) {
-            return true;
-         }
-      }
-      return false;
+      //a line through the location where the number of tokens belonging to
+      //player of id equals 3
+      //i.e. 3 out of 4 tokens in this line are already in place
+      //     the 4th being the available location we are looking at
+      return this.counts.positionToWin(row, column, id);
    }
    
    /**
@@ -156,11 +360,11 @@ public abstract class BotStarter {
     */
    public List<Integer>[] getFreeLocations() {
       @SuppressWarnings("unchecked")
-      List<Integer>[] rowsOfFreeLocs = new List[this.field.length];
-      for (int row = 0; row < this.field.length; row++) {
+      List<Integer>[] rowsOfFreeLocs = new List[this.board.rows()];
+      for (int row = 0; row < this.board.rows(); row++) {
          List<Integer> columns = new ArrayList<Integer>();
-         for (int col = 0; col < this.field[0].length; col++) {
-            if (this.field[row][col] == 0) {
+         for (int col = 0; col < this.board.columns(); col++) {
+            if (this.board.get(row, col) == 0) {
                columns.add(col);
             }
          }
@@ -186,10 +390,10 @@ public abstract class BotStarter {
     */
    public Map<Integer, List<Integer>> getLocations(int id) {
       Map<Integer, List<Integer>> moves = new HashMap<Integer, List<Integer>>();
-      for (int i = 0; i < this.field[0].length; i++) {//traverses the first row
+      for (int i = 0; i < this.board.columns(); i++) {//traverses the first row
          List<Integer> rows = new ArrayList<Integer>();
-         for (int j = 0; j < this.field.length; j++) {//traverses each column
-            if (this.field[j][i] == id) {//[j][i] because j represents rows
+         for (int j = 0; j < this.board.rows(); j++) {//traverses each column
+            if (this.board.get(j, i) == id) {//(j, i) because j represents rows
                rows.add(j);//gets all moves player has made already
             }
          }
@@ -221,10 +425,10 @@ public abstract class BotStarter {
          int lineCol = line[i][0];
          int lineRow = line[i][1];
          if (lineRow != row || lineCol != col ) {
-            if (this.availableMoves.containsKey(lineCol) &&
-                  this.availableMoves.get(lineCol) == lineRow) {
+            if (this.availableMoves.isAvailable(
+                  this.availableMoves.mask(), lineRow, lineCol)) {
                indices.add(i);
-            } else if (this.field[lineRow][lineCol] == 0) {
+            } else if (this.board.get(lineRow, lineCol) == 0) {
                //absolutely no free locations other than available locations
                return null;
             }
@@ -236,6 +440,56 @@ public abstract class BotStarter {
       return null;
    }
    
+   /**
+    * Same as findAvailableLocation(Integer[][], int, int), but looks at a
+    *    line from getLines() and does not allocate.
+    *    
+    * @param line the id of a line through the given location
+    * @param row
+    * @param col
+    * @return  the column of the only available location in the line other
+    *             than the given location, or
+    *          -1 if there is no such location
+    */
+   public int findAvailableLocation(int line, int row, int col) {
+      return this.findAvailableLocation(line, row, col,
+            this.availableMoves.mask());
+   }
+   
+   /**
+    * Same as findAvailableLocation(int, int, int), but only the locations of
+    *    the given candidate columns count as available.
+    *    
+    * @param line the id of a line through the given location
+    * @param row
+    * @param col
+    * @param candidates a mask of columns (see CandidateMoves)
+    * @return  the column of the only available location in the line other
+    *             than the given location, or
+    *          -1 if there is no such location
+    */
+   public int findAvailableLocation(int line, int row, int col,
+         int candidates) {
+      int column = -1;
+      for (int i = 0; i < this.lines.length(); i++) {
+         int lineCol = this.lines.column(line, i);
+         int lineRow = this.lines.row(line, i);
+         if (lineRow != row || lineCol != col ) {
+            if (this.availableMoves.isAvailable(candidates, lineRow,
+                  lineCol)) {
+               if (column >= 0) {//more than one available location
+                  return -1;
+               }
+               column = lineCol;
+            } else if (this.board.get(lineRow, lineCol) == 0) {
+               //absolutely no free locations other than available locations
+               return -1;
+            }
+         }
+      }
+      return column;
+   }
+   
    /**
     * Given a line and the id we are looking at, 
     * 
@@ -253,13 +507,29 @@ public abstract class BotStarter {
       for (int i = 0; i < line.length; i++) {
          int column = line[i][0];
          int row = line[i][1];
-         if (this.field[row][column] == id) {
+         if (this.board.get(row, column) == id) {
             sum++;
          }
       }
       return sum;
    }
    
+   /**
+    * Same as numTokensInLine(Integer[][], int), but looks at a line from
+    *    getLines().
+    * 
+    * @param line the id of a line of locations
+    * @param id   the id of the player we are looking at (or 0)
+    * @return  an int from 0 to 4, depending on the number of tokens
+    */
+   public int numTokensInLine(int line, int id) {
+      if (id == 0) {
+         return this.lines.length() - this.counts.count(line, 1) -
+               this.counts.count(line, 2);
+      }
+      return this.counts.count(line, id);
+   }
+   
    /**
     * A win is defined as a line of 4 discs from the same player
     *    This line can be:
@@ -284,21 +554,18 @@ public abstract class BotStarter {
       if (!this.validLocation(row, col) || (id != 1 && id != 2)) {
          throw new IllegalArgumentException();
       }
-      Set<Integer[][]> wins = this.getPossibleWins(row, col);
-      for (Iterator<Integer[][]> i = wins.iterator(); i.hasNext();) {
-         Integer[][] line = i.next();
-         if (!this.lineBelongsTo(line, id)) {
-            i.remove();
+      Set<Integer[][]> wins = new HashSet<Integer[][]>();
+      for (int i = 0; i < this.lines.numLines(row, col); i++) {
+         int line = this.lines.line(row, col, i);
+         if (this.isPossibleWin(row, col, i) && this.lineBelongsTo(line, id)) {
+            wins.add(this.toArray(line));
          }
       }
       return wins;
    }
    
    /**
-    * @Precondition: the line must contain
-    *                   1. tokens from only one player or
-    *                   2. no tokens at all
-    * @param line a line of locations in our field
+    * @param line the id of a line of locations in our field
     * @param id   the id of a player (must be a 1 or 2)
     * @return  if there is a token that belongs to a different player, false
     *          if the line contains only tokens belong to the player with the
@@ -307,16 +574,8 @@ public abstract class BotStarter {
     *             some combination of the two,
     *             true
     */
-   private boolean lineBelongsTo(Integer[][] line, int id) {
-      for (int i = 0; i < line.length; i++) {
-         int column = line[i][0];
-         int row = line[i][1];
-         //there is a token in this line that belongs to a different player
-         if (this.field[row][column] != id && this.field[row][column] != 0) {
-            return false;
-         }
-      }
-      return true;
+   public boolean lineBelongsTo(int line, int id) {
+      return this.counts.count(line, 3 - id) == 0;
    }
    
    /**
@@ -348,156 +607,69 @@ public abstract class BotStarter {
     *             04
     */
    public Set<Integer[][]> getPossibleWins(int row, int col) {
-      int[][] lines = this.findWinningLines(row, col);
       Set<Integer[][]> wins = new HashSet<Integer[][]>();
-      //compares the columns of the horizontal line
-      int horizontalLineLength = lines[1][1] - lines[0][1];
-      if (horizontalLineLength >= 3) {
-         this.addPossibleWins(wins, lines[0][0], lines[0][1], 0, 1,
-               horizontalLineLength - 2);
-      }
-      //compares the rows of the vertical line
-      int verticalLineLengeth = lines[2][0] - lines[3][0];
-      if (verticalLineLengeth >= 3) {
-         this.addPossibleWins(wins, lines[3][0], lines[3][1], 1, 0,
-               verticalLineLengeth - 2);
-      }
-      //compares the columns of the left diagonal line
-      int leftDiagonalLine = lines[5][1] - lines[4][1];
-      if (leftDiagonalLine >= 3) {
-         this.addPossibleWins(wins, lines[4][0], lines[4][1], 1, 1,
-               leftDiagonalLine - 2);
-      }
-      //compares the columns of the right diagonal line
-      int rightDiagonalLine = lines[7][1] - lines[6][1];
-      if (rightDiagonalLine >= 3) {
-         this.addPossibleWins(wins, lines[6][0], lines[6][1], -1, 1,
-               rightDiagonalLine - 2);
+      for (int i = 0; i < this.lines.numLines(row, col); i++) {
+         if (this.isPossibleWin(row, col, i)) {
+            wins.add(this.toArray(this.lines.line(row, col, i)));
+         }
       }
       return wins;
    }
    
    /**
-    * Adds all possible wins in this line to wins
-    * @Precondition: wins is already declared
+    * Same as getPossibleWins(row, col).size(), without building the Set.
     * 
-    * @param wins A Set of 2D Integer arrays containing possible wins
-    * @param row  the row of the location we start the line at
-    * @param col  the column of the location we start the line at
-    * @param rowDiff the direction the row moves in
-    * @param colDiff the direction the column moves in
-    * @param increment  the number of possible wins there are in this line
-    */
-   private void addPossibleWins(Set<Integer[][]> wins, int row, int col,
-         int rowDiff, int colDiff, int increment) {
-      for (int i = 0; i < increment; i++) {
-         Integer[][] four = new Integer[4][2];//four in a row
-         for (int j = 0; j < 4; j++) {
-            four[j][0] = col + colDiff * (i + j);
-            four[j][1] = row + rowDiff * (i + j);
+    * @param row  the row of the disc we are looking at
+    * @param col  the column of the disc we are looking at
+    * @return  the number of possible wins at the given location
+    */
+   public int numPossibleWins(int row, int col) {
+      int wins = 0;
+      for (int i = 0; i < this.lines.numLines(row, col); i++) {
+         if (this.isPossibleWin(row, col, i)) {
+            wins++;
          }
-         wins.add(four);
       }
+      return wins;
    }
    
    /**
-    * @Precondition: The location given is a valid location in this field
-    * 
-    * This denotes the 8 points surrounding the given location so that
-    *    we can figure out the lines that make it
-    * The set of 8 points are divided into 4 sets of lines
-    * The order of the points are as follows:
-    *    0. left side of horizontal
-    *    1. right side of horizontal
-    *    2. top of vertical
-    *    3. bottom of vertical
-    *    4. top left of left diagonal
-    *    5. bottom right of left diagonl
-    *    6. bottom left of right diagonal
-    *    7. top right of right diagonal
-    *    
-    * @param row  the row of the location we are considering
-    * @param col  the column of the location we are considering
-    * @return  int[][] of 
-    */
-   private int[][] findWinningLines(int row, int col) {
-      int[][] lines = new int[8][2];
-      lines[0] = this.findMaxDistance(0, -1, row, col);
-      lines[1] = this.findMaxDistance(0, 1, row, col);
-      lines[2] = this.findMaxDistance(1, 0, row, col);
-      lines[3] = this.findMaxDistance(-1, 0, row, col);
-      lines[4] = this.findMaxDistance(-1, -1, row, col);
-      lines[5] = this.findMaxDistance(1, 1, row, col);
-      lines[6] = this.findMaxDistance(1, -1, row, col);
-      lines[7] = this.findMaxDistance(-1, 1, row, col);
-      return lines;
-   }
-   
-   /**
-    * Finds the maximum distance away from a given location that
-    *    could make a line of connected discs.
-    * We keep incrementing while either:
-    *    1. the location contains a disc of the same id as the initial location
-    *    2. the location contains no disc
-    * We stop incrementing and do not include the location of:
-    *    1. a location that is not in the bounds of the field
-    *    2. a location containing a disc of a different id as the starting
-    *          location
+    * Decides if the i-th line through a location is a possible win.
+    *    If the location belongs to a player, the line must not contain a
+    *       token of the other player.
+    *    If the location belongs to no one, each side of the line (the
+    *       locations before and after it) may only contain tokens of one
+    *       player, although the two sides may belong to different players.
     * 
-    * @param rowDiff    how much to increment the row by
-    * @param colDiff    "                       " column by
-    * @param row        the starting row
-    * @param col        the starting column
-    * @return  an int[] of size two where:
-    *             the first element represents a row
-    *             the second element represents a column
-    */
-   private int[] findMaxDistance(int rowDiff, int colDiff, int row, int col) {
-      int counter = 0;
-      int[] location = {row,col};
-      int id = this.field[row][col];
-      while (counter < 4 && this.matchingLocation(row + rowDiff * counter,
-            col + colDiff * counter, id)) {
-         location[0] = row + rowDiff * counter;
-         location[1] = col + colDiff * counter;
-         counter++;
-      }
-      //if we started off with a free location (which would have an id of 0),
-      //then we would want to keep going to include the max distance of the
-      //other id
-      if (id == 0 && this.validLocation(row + rowDiff * counter,
-            col + colDiff * counter)) {
-         id = this.field[row + rowDiff * counter][col + colDiff * counter];
-         while (counter < 4 && this.matchingLocation(row + rowDiff * counter,
-               col + colDiff * counter, id)) {
-            location[0] = row + rowDiff * counter;
-            location[1] = col + colDiff * counter;
-            counter++;
-         }
+    * @param row
+    * @param col
+    * @param i    the index of the line among the lines through the location
+    * @return  true if the line is a possible win at the location
+    */
+   private boolean isPossibleWin(int row, int col, int i) {
+      int id = this.board.get(row, col);
+      if (id != 0) {
+         return this.lineBelongsTo(this.lines.line(row, col, i), id);
       }
-      return location;
+      long one = this.board.discs(1);
+      long two = this.board.discs(2);
+      long before = this.lines.beforeMask(row, col, i);
+      long after = this.lines.afterMask(row, col, i);
+      return ((one & before) == 0 || (two & before) == 0) &&
+            ((one & after) == 0 || (two & after) == 0);
    }
    
    /**
-    * Given an id, return true if this location either contains a disc of the
-    *    same id or no disc at all
-    *    
-    * @param row     row of the location
-    * @param column  column of the location
-    * @param id   1 or 2, which is a disc that belongs to a player
-    *             0       which is a location that belongs to neither player
-    * @return  true if the disc at this location matches id or
-    *               the location belongs to no one; otherwise,
-    *          false
-    *               this would indicate that the location is out of bounds or
-    *               belongs to a different player
-    *          
+    * @param line the id of a line from getLines()
+    * @return  the line in the format described at the top of this class
     */
-   private boolean matchingLocation(int row, int column, int id) {
-      if (!this.validLocation(row, column)) {
-         return false;
+   private Integer[][] toArray(int line) {
+      Integer[][] four = new Integer[this.lines.length()][2];//four in a row
+      for (int i = 0; i < this.lines.length(); i++) {
+         four[i][0] = this.lines.column(line, i);
+         four[i][1] = this.lines.row(line, i);
       }
-      return this.field[row][column] == id || this.field[row][column] == 0;
+      return four;
    }
    
    /**
@@ -509,8 +681,7 @@ public abstract class BotStarter {
     * 
     */
    public boolean validLocation(int row, int column) {
-      return (row >= 0 && column >= 0 && row < this.field.length &&
-            column < this.field[0].length);
+      return this.board.validLocation(row, column);
    }
    
    /**
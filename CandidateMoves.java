@@ -0,0 +1,114 @@
+package bot;
+
+/**
+ * CandidateMoves class
+ *
+ * The moves that can be made in the field: a mask of the columns that are
+ *    not full, and the row a disc would land in for each column.
+ *
+ * Some things to note when interacting with this class.
+ *    A set of candidate columns is an int mask: bit c is set if column c is
+ *       a candidate. Narrowing a set down makes a new mask, so the sets of
+ *       different steps of a bot never get in each other's way and nothing
+ *       is boxed or allocated.
+ *    The landing rows only change when the field does (see update), so
+ *       every mask made from mask() shares them.
+ *
+ * @version 10/16/26
+ */
+public class CandidateMoves {
+
+   //the row a disc would land in, by column (-1 if the column is full)
+   private final byte[] rows;
+   private int mask;
+
+   /**
+    * @Precondition: there are at most 32 columns; otherwise,
+    *                   throws an IllegalArgumentException
+    * @param columns
+    */
+   public CandidateMoves(int columns) {
+      if (columns > 32) {
+         throw new IllegalArgumentException();
+      }
+      this.rows = new byte[columns];
+   }
+
+   /**
+    * @Postcondition: the moves are the ones that can be made on board
+    * @param board
+    */
+   public void update(Bitboard board) {
+      this.mask = 0;
+      for (int col = 0; col < this.rows.length; col++) {
+         int row = board.availableRow(col);
+         this.rows[col] = (byte) row;
+         if (row >= 0) {//the column is not full
+            this.mask |= 1 << col;
+         }
+      }
+   }
+
+   /**
+    * @return  the columns that are not full
+    */
+   public int mask() {
+      return this.mask;
+   }
+
+   /**
+    * @param col
+    * @return  the row a disc would land in, or -1 if the column is full
+    */
+   public int row(int col) {
+      return this.rows[col];
+   }
+
+   /**
+    * @param candidates a mask of columns
+    * @param row
+    * @param col
+    * @return  true if the column is one of the candidates and the location is
+    *             where its disc would land
+    */
+   public boolean isAvailable(int candidates, int row, int col) {
+      return contains(candidates, col) && this.rows[col] == row;
+   }
+
+   /**
+    * @param candidates a mask of columns
+    * @param col
+    * @return  true if the column is one of the candidates
+    */
+   public static boolean contains(int candidates, int col) {
+      return (candidates & (1 << col)) != 0;
+   }
+
+   /**
+    * @return  the columns in both masks
+    */
+   public static int intersect(int candidates, int others) {
+      return candidates & others;
+   }
+
+   /**
+    * Narrows the candidates down to the columns a step of a bot wants to keep.
+    *    A step that found nothing to keep does not narrow anything down.
+    *
+    * @param candidates a mask of columns
+    * @param keep       the columns to keep
+    * @return  the candidates that are also in keep, or
+    *          all of the candidates if keep is empty
+    */
+   public static int retain(int candidates, int keep) {
+      return keep == 0 ? candidates : candidates & keep;
+   }
+
+   /**
+    * @param candidates a mask of columns
+    * @return  the number of columns in the mask
+    */
+   public static int size(int candidates) {
+      return Integer.bitCount(candidates);
+   }
+}
@@ -0,0 +1,247 @@
+package bot;
+
+/**
+ * EndgameSolver class
+ *
+ * Solves positions near the end of the game exactly: with few free
+ *    locations left, the whole game tree can be searched in a few
+ *    milliseconds, so there is no need to guess.
+ *
+ * Some things to note when interacting with this class.
+ *    The search is a negamax search with alpha-beta pruning over a Bitboard,
+ *       without a depth limit or a clock; it only stops at the end of the
+ *       game. It is meant for positions with at most DEFAULT_THRESHOLD or
+ *       so free locations.
+ *    Moves that make the most threats are searched first (after the best
+ *       move stored in the table), because they tend to win quickly or
+ *       force the opponent's answer.
+ *    Moves that lose at once (not blocking the opponent's win, or playing
+ *       under it) are never searched.
+ *    Solved positions are kept in a small TranspositionTable of the
+ *       solver's own, so a search is warm from the last move's. A position
+ *       and its mirror image share an entry (see Bitboard.canonicalHash).
+ *
+ * Scores are from the point of view of the player to move:
+ *    a win scores the number of free locations left when the winning disc
+ *    is placed, so quicker wins score higher, a loss scores the opposite,
+ *    and a draw scores 0.
+ *
+ * @version 10/16/26
+ */
+public class EndgameSolver {
+
+   //positions with at most this many free locations are solved by default
+   public static final int DEFAULT_THRESHOLD = 12;
+   //the solver's TranspositionTable is small: endgames have few positions
+   private static final int TABLE_MEGABYTES = 1;
+
+   private final Bitboard board;
+   private final TranspositionTable table;
+   //columns from the center out, to break ties in move ordering
+   private final int[] order;
+   //the moves of each ply, sorted, and how many threats each one makes
+   private final int[][] moves;
+   private final int[][] threats;
+
+   private int bestMove;
+   private long nodes;
+   //true if the table may hold positions
+   private boolean used;
+
+   public EndgameSolver(int rows, int columns) {
+      this(rows, columns, WinningLines.STANDARD_LENGTH);
+   }
+
+   /**
+    * @param rows
+    * @param columns
+    * @param connect the number of discs in a line that wins the game
+    */
+   public EndgameSolver(int rows, int columns, int connect) {
+      this.board = new Bitboard(rows, columns, connect);
+      this.table = new TranspositionTable(TABLE_MEGABYTES);
+      this.order = new int[columns];
+      for (int i = 0; i < columns; i++) {
+         //0, 1, -1, 2, -2, ... away from the center
+         int offset = (i + 1) / 2 * (i % 2 == 0 ? -1 : 1);
+         this.order[i] = (columns - 1) / 2 + offset;
+      }
+      this.moves = new int[rows * columns + 1][columns];
+      this.threats = new int[rows * columns + 1][columns];
+   }
+
+   /**
+    * @Precondition: the position is of the solver's size and length, the
+    *                player with the given id is to move and there is at
+    *                least one available location; otherwise,
+    *                   throws an IllegalArgumentException
+    * @param position   the position to solve (it is not changed)
+    * @param id         the id of the player to move
+    * @return  the game-theoretic score of the position for the player (see
+    *             the top of this class); getBestMove gives the move that
+    *             gets it
+    */
+   public int solve(Bitboard position, int id) {
+      this.board.copyFrom(position);
+      long legal = this.board.legalMoves();
+      if (legal == 0) {
+         throw new IllegalArgumentException();
+      }
+      this.nodes = 0;
+      this.used = true;
+      this.bestMove = this.board.column(Long.numberOfTrailingZeros(legal));
+      int free = Long.bitCount(this.board.freeMask());
+      return this.solve(id, -free, free, 0);
+   }
+
+   private int solve(int id, int alpha, int beta, int ply) {
+      this.nodes++;
+      Bitboard board = this.board;
+      long legal = board.legalMoves();
+      if (legal == 0) {
+         return 0;//the field is full: a draw
+      }
+      int free = Long.bitCount(board.freeMask());
+      long wins = board.winningCells(id) & legal;
+      if (wins != 0) {
+         if (ply == 0) {
+            this.bestMove = board.column(Long.numberOfTrailingZeros(wins));
+         }
+         return free;
+      }
+      long oppWins = board.winningCells(3 - id);
+      long forced = oppWins & legal;
+      if (forced != 0) {
+         if (ply == 0) {
+            this.bestMove = board.column(Long.numberOfTrailingZeros(forced));
+         }
+         if ((forced & (forced - 1)) != 0) {
+            return -(free - 1);//two wins for the opponent cannot be blocked
+         }
+         legal = forced;
+      }
+      legal &= ~(oppWins >>> 1);
+      if (legal == 0) {
+         return -(free - 1);//every move lets the opponent win next turn
+      }
+      //the quickest win left is two plies away (with one or two locations
+      //left, the best left is a draw)
+      int max = Math.max(free - 2, 0);
+      if (beta > max) {
+         beta = max;
+         if (alpha >= beta) {
+            return beta;
+         }
+      }
+      //a position and its mirror image share an entry
+      long hash = board.canonicalHash();
+      boolean mirrored = board.hashIsMirrored();
+      long entry = this.table.probe(hash);
+      int first = TranspositionTable.NO_MOVE;
+      if (entry != 0) {
+         first = TranspositionTable.mirrorMove(TranspositionTable.move(entry),
+               board, mirrored);
+         int score = TranspositionTable.score(entry);
+         int bound = TranspositionTable.bound(entry);
+         if (bound == TranspositionTable.EXACT ||
+               (bound == TranspositionTable.LOWER && score >= beta) ||
+               (bound == TranspositionTable.UPPER && score <= alpha)) {
+            if (ply == 0 && first != TranspositionTable.NO_MOVE) {
+               this.bestMove = first;
+            }
+            return score;
+         }
+      }
+      int count = this.orderMoves(legal, id, first, ply);
+      int alphaOrig = alpha;
+      int best = TranspositionTable.NO_MOVE;
+      int bestScore = -free;
+      for (int i = 0; i < count; i++) {
+         int col = this.moves[ply][i];
+         board.play(col, id);
+         int score = -this.solve(3 - id, -beta, -alpha, ply + 1);
+         board.undo(col);
+         if (score > bestScore) {
+            bestScore = score;
+            best = col;
+            if (score > alpha) {
+               alpha = score;
+               if (alpha >= beta) {
+                  break;
+               }
+            }
+         }
+      }
+      if (ply == 0) {
+         this.bestMove = best;
+      }
+      int bound = bestScore >= beta ? TranspositionTable.LOWER :
+            bestScore > alphaOrig ? TranspositionTable.EXACT :
+            TranspositionTable.UPPER;
+      this.table.store(hash, free, bestScore, bound,
+            TranspositionTable.mirrorMove(best, board, mirrored));
+      return bestScore;
+   }
+
+   /**
+    * Puts the moves of a ply in the order they are searched: the table's
+    *    move, then the moves that make the most threats, center first among
+    *    equals.
+    *
+    * @return  the number of moves
+    */
+   private int orderMoves(long legal, int id, int first, int ply) {
+      int[] moves = this.moves[ply];
+      int[] threats = this.threats[ply];
+      int count = 0;
+      for (int col : this.order) {
+         if ((legal & this.board.columnMask(col)) == 0) {
+            continue;
+         }
+         int made;
+         if (col == first) {
+            made = Integer.MAX_VALUE;
+         } else {
+            this.board.play(col, id);
+            made = Long.bitCount(this.board.winningCells(id) &
+                  this.board.freeMask());
+            this.board.undo(col);
+         }
+         //insertion sort: the order is already center first, so moves that
+         //make as many threats stay in that order
+         int i = count++;
+         while (i > 0 && threats[i - 1] < made) {
+            moves[i] = moves[i - 1];
+            threats[i] = threats[i - 1];
+            i--;
+         }
+         moves[i] = col;
+         threats[i] = made;
+      }
+      return count;
+   }
+
+   /**
+    * @Postcondition: no solved positions are remembered
+    */
+   public void clear() {
+      if (this.used) {
+         this.table.clear();
+         this.used = false;
+      }
+   }
+
+   /**
+    * @return  the best move of the last position solved
+    */
+   public int getBestMove() {
+      return this.bestMove;
+   }
+
+   /**
+    * @return  the number of positions the last solve looked at
+    */
+   public long getNodes() {
+      return this.nodes;
+   }
+}
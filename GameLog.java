@@ -0,0 +1,188 @@
+package bot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * GameLog class
+ *
+ * Writes GameRecords to a rolling log: a file that is moved aside (to
+ *    file.1, the old file.1 to file.2, and so on) once it reaches maxBytes,
+ *    keeping the newest `files` files. Replay them with GameReplay.
+ *
+ * Some things to note when interacting with this class.
+ *    Records are written by a thread of the log's own, so a game never
+ *       waits for the disk: add only turns the record into bytes and puts
+ *       them in a queue. If the queue is full (the disk cannot keep up),
+ *       the record is dropped and counted rather than waited for.
+ *    Records are only ever added whole, once a game is over, and each one
+ *       is written with a single write, so a log cut short by a crash only
+ *       loses its last record.
+ *    Any number of threads can add to one log (see BotServer).
+ *    close writes whatever is still queued before it returns.
+ *
+ * @version 10/16/26
+ */
+public class GameLog {
+
+   public static final long DEFAULT_MAX_BYTES = 16L << 20;
+   public static final int DEFAULT_FILES = 4;
+   //records waiting to be written, at most
+   private static final int QUEUE = 1024;
+   //tells the writer there is nothing more to write
+   private static final byte[] END = new byte[0];
+
+   private final File file;
+   private final long maxBytes;
+   private final int files;
+   private final BlockingQueue<byte[]> queue =
+         new ArrayBlockingQueue<byte[]>(QUEUE);
+   private final Thread writer;
+   private final AtomicLong dropped = new AtomicLong();
+   private volatile boolean closed;
+   private FileOutputStream out;
+   private long size;
+
+   /**
+    * @param file       the file the newest records go in
+    * @param maxBytes   how big a file gets before it is moved aside
+    * @param files      how many files to keep (file, file.1, ...)
+    */
+   public GameLog(File file, long maxBytes, int files) {
+      this.file = file;
+      this.maxBytes = maxBytes;
+      this.files = Math.max(files, 1);
+      this.writer = new Thread(new Runnable() {
+         public void run() {
+            GameLog.this.write();
+         }
+      }, "game-log");
+      this.writer.setDaemon(true);
+      this.writer.start();
+   }
+
+   /**
+    * Queues a record to be written.
+    *
+    * @param record
+    * @return  false if it was dropped (the queue is full, or the log is
+    *             closed)
+    */
+   public boolean add(GameRecord record) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+      try {
+         record.write(new DataOutputStream(bytes));
+      } catch (IOException e) {
+         throw new IllegalStateException(e);//not from a byte array
+      }
+      if (this.closed || !this.queue.offer(bytes.toByteArray())) {
+         this.dropped.incrementAndGet();
+         return false;
+      }
+      return true;
+   }
+
+   private void write() {
+      try {
+         while (true) {
+            byte[] record = this.queue.take();
+            if (record == END) {
+               break;
+            }
+            try {
+               this.append(record);
+            } catch (IOException e) {
+               this.dropped.incrementAndGet();
+               System.err.println("could not log game: " + e.getMessage());
+               this.closeFile();
+            }
+         }
+      } catch (InterruptedException e) {
+         //stop writing
+      } finally {
+         this.closeFile();
+      }
+   }
+
+   private void append(byte[] record) throws IOException {
+      if (this.out != null && this.size > 0 &&
+            this.size + record.length > this.maxBytes) {
+         this.closeFile();
+         this.roll();
+      }
+      if (this.out == null) {
+         this.out = new FileOutputStream(this.file, true);
+         this.size = this.file.length();
+      }
+      this.out.write(record);
+      this.size += record.length;
+   }
+
+   /**
+    * Moves file aside to file.1 (and file.1 to file.2, ...), dropping the
+    *    oldest.
+    */
+   private void roll() {
+      if (this.files == 1) {
+         this.file.delete();
+         return;
+      }
+      new File(this.file.getPath() + "." + (this.files - 1)).delete();
+      for (int i = this.files - 2; i >= 0; i--) {
+         File from = i == 0 ? this.file :
+               new File(this.file.getPath() + "." + i);
+         from.renameTo(new File(this.file.getPath() + "." + (i + 1)));
+      }
+   }
+
+   private void closeFile() {
+      if (this.out != null) {
+         try {
+            this.out.close();
+         } catch (IOException e) {
+            //nothing more can be done about it
+         }
+         this.out = null;
+      }
+   }
+
+   /**
+    * @return  the number of records that were not written
+    */
+   public long getDropped() {
+      return this.dropped.get();
+   }
+
+   /**
+    * @Postcondition: every record added before is written (or dropped), and
+    *                 no more are taken
+    */
+   public void close() {
+      this.closed = true;
+      boolean interrupted = false;
+      while (true) {
+         try {
+            this.queue.put(END);
+            break;
+         } catch (InterruptedException e) {
+            interrupted = true;
+         }
+      }
+      while (this.writer.isAlive()) {
+         try {
+            this.writer.join();
+         } catch (InterruptedException e) {
+            interrupted = true;
+         }
+      }
+      if (interrupted) {
+         Thread.currentThread().interrupt();
+      }
+   }
+}
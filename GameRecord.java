@@ -0,0 +1,232 @@
+package bot;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * GameRecord class
+ *
+ * A game as we saw it: the discs placed, one byte per ply, in the order
+ *    they were placed, and for each of our moves how long we took and how
+ *    much time the engine said we had left. It is enough to put every field
+ *    the engine sent back together (see field) and ask a bot again.
+ *
+ * Some things to note when interacting with this class.
+ *    A ply is a byte:
+ *       bits 0 - 5: the column (so fields of up to 64 columns)
+ *       bit  6:     set if the disc is player 2's
+ *       bit  7:     set if it is our move (the column we answered)
+ *    Discs that were already in the field the first time we saw it (or
+ *       that came in together) are plies too, bottom up and left to right:
+ *       the fields come out the same, even if the order is not the one they
+ *       were placed in.
+ *
+ * A record is written as:
+ *    int   MAGIC
+ *    byte  rows, columns, connect, our id
+ *    int   timebank, time_per_move
+ *    short the number of plies
+ *    byte  each ply
+ *    then for each of our moves:
+ *    int   the microseconds it took us
+ *    int   the milliseconds the engine said were left in our time bank
+ *
+ * @version 10/16/26
+ */
+public class GameRecord {
+
+   public static final int MAGIC = 0x43344752;//"C4GR"
+   public static final int PLAYER_2 = 0x40;
+   public static final int OURS = 0x80;
+   private static final int COLUMN_MASK = 0x3F;
+
+   private final int rows;
+   private final int columns;
+   private final int connect;
+   private int id;
+   private int timebank;
+   private int timePerMove;
+   private byte[] plies = new byte[64];
+   private int numPlies;
+   //by our move
+   private int[] micros = new int[32];
+   private int[] timeLeft = new int[32];
+   private int numMoves;
+
+   public GameRecord(int rows, int columns, int connect) {
+      this.rows = rows;
+      this.columns = columns;
+      this.connect = connect;
+   }
+
+   /**
+    * @param id            our id
+    * @param timebank      as the engine set it
+    * @param timePerMove   as the engine set it
+    */
+   public void setSettings(int id, int timebank, int timePerMove) {
+      this.id = id;
+      this.timebank = timebank;
+      this.timePerMove = timePerMove;
+   }
+
+   /**
+    * @param column  the column of the disc
+    * @param player  the id of the player the disc belongs to
+    */
+   public void addPly(int column, int player) {
+      if (this.numPlies == this.plies.length) {
+         this.plies = Arrays.copyOf(this.plies, this.numPlies * 2);
+      }
+      this.plies[this.numPlies++] = (byte) (column |
+            (player == 2 ? PLAYER_2 : 0));
+   }
+
+   /**
+    * @param column     the column we answered
+    * @param micros     how long we took
+    * @param timeLeft   the milliseconds the engine said we had left
+    */
+   public void addMove(int column, long micros, int timeLeft) {
+      this.addPly(column, this.id);
+      this.plies[this.numPlies - 1] |= (byte) OURS;
+      if (this.numMoves == this.micros.length) {
+         this.micros = Arrays.copyOf(this.micros, this.numMoves * 2);
+         this.timeLeft = Arrays.copyOf(this.timeLeft, this.numMoves * 2);
+      }
+      this.micros[this.numMoves] = (int) Math.min(micros, Integer.MAX_VALUE);
+      this.timeLeft[this.numMoves] = timeLeft;
+      this.numMoves++;
+   }
+
+   public void write(DataOutputStream out) throws IOException {
+      out.writeInt(MAGIC);
+      out.writeByte(this.rows);
+      out.writeByte(this.columns);
+      out.writeByte(this.connect);
+      out.writeByte(this.id);
+      out.writeInt(this.timebank);
+      out.writeInt(this.timePerMove);
+      out.writeShort(this.numPlies);
+      out.write(this.plies, 0, this.numPlies);
+      for (int i = 0; i < this.numMoves; i++) {
+         out.writeInt(this.micros[i]);
+         out.writeInt(this.timeLeft[i]);
+      }
+   }
+
+   /**
+    * @Precondition: in is at the start of a record; otherwise,
+    *                   throws an IOException
+    * @return  the record
+    * @throws IOException  (an EOFException if in ends before the record
+    *                         does)
+    */
+   public static GameRecord read(DataInputStream in) throws IOException {
+      if (in.readInt() != MAGIC) {
+         throw new IOException("not a game record");
+      }
+      GameRecord record = new GameRecord(in.readUnsignedByte(),
+            in.readUnsignedByte(), in.readUnsignedByte());
+      record.setSettings(in.readUnsignedByte(), in.readInt(), in.readInt());
+      int numPlies = in.readUnsignedShort();
+      record.plies = new byte[Math.max(numPlies, 1)];
+      in.readFully(record.plies, 0, numPlies);
+      record.numPlies = numPlies;
+      for (int i = 0; i < numPlies; i++) {
+         if ((record.plies[i] & OURS) != 0) {
+            record.numMoves++;
+         }
+      }
+      record.micros = new int[Math.max(record.numMoves, 1)];
+      record.timeLeft = new int[record.micros.length];
+      for (int i = 0; i < record.numMoves; i++) {
+         record.micros[i] = in.readInt();
+         record.timeLeft[i] = in.readInt();
+      }
+      return record;
+   }
+
+   /**
+    * @Precondition: 0 <= plies <= getPlies() and the plies are legal;
+    *                otherwise, throws an IllegalArgumentException
+    * @param plies   the number of plies to place
+    * @return  the field after the first plies, in the engine's format
+    */
+   public String field(int plies) {
+      Bitboard board = new Bitboard(this.rows, this.columns, this.connect);
+      for (int i = 0; i < plies; i++) {
+         int col = this.column(i);
+         if (col >= this.columns || board.heightOf(col) >= this.rows) {
+            throw new IllegalArgumentException("illegal ply " + i);
+         }
+         board.play(col, this.player(i));
+      }
+      return board.toField();
+   }
+
+   public int getRows() {
+      return this.rows;
+   }
+
+   public int getColumns() {
+      return this.columns;
+   }
+
+   public int getConnect() {
+      return this.connect;
+   }
+
+   public int getId() {
+      return this.id;
+   }
+
+   public int getTimebank() {
+      return this.timebank;
+   }
+
+   public int getTimePerMove() {
+      return this.timePerMove;
+   }
+
+   public int getPlies() {
+      return this.numPlies;
+   }
+
+   public int column(int ply) {
+      return this.plies[ply] & COLUMN_MASK;
+   }
+
+   public int player(int ply) {
+      return (this.plies[ply] & PLAYER_2) != 0 ? 2 : 1;
+   }
+
+   public boolean isOurs(int ply) {
+      return (this.plies[ply] & OURS) != 0;
+   }
+
+   /**
+    * @return  the number of our moves
+    */
+   public int getMoves() {
+      return this.numMoves;
+   }
+
+   /**
+    * @param move the index of one of our moves (not a ply)
+    * @return  how many microseconds it took
+    */
+   public int micros(int move) {
+      return this.micros[move];
+   }
+
+   /**
+    * @param move the index of one of our moves (not a ply)
+    * @return  how many milliseconds the engine said we had left
+    */
+   public int timeLeft(int move) {
+      return this.timeLeft[move];
+   }
+}
@@ -0,0 +1,96 @@
+package bot;
+
+/**
+ * GameRecorder class
+ *
+ * Turns what a BotParser sees of a game into a GameRecord, and adds the
+ *    record to a GameLog when the game is over.
+ *
+ * Some things to note when interacting with this class.
+ *    The engine sends the whole field every turn, but a record only keeps
+ *       the discs that are new: field compares the bot's board with the
+ *       discs seen so far. Only a few longs are compared, so recording costs
+ *       next to nothing next to a turn.
+ *    If a disc seen before is gone, a new game has started on the same
+ *       connection: the game so far goes to the log and a new record starts.
+ *    A recorder belongs to one BotParser (and thread); the log it adds to
+ *       can be shared.
+ *
+ * @version 10/16/26
+ */
+public class GameRecorder {
+
+   private final GameLog log;
+   private final BotStarter bot;
+   //the discs seen so far this game
+   private final Bitboard known;
+   private GameRecord record;
+
+   /**
+    * @param log  where the games go
+    * @param bot  the bot whose games are recorded
+    */
+   public GameRecorder(GameLog log, BotStarter bot) {
+      this.log = log;
+      this.bot = bot;
+      Bitboard board = bot.getBoard();
+      this.known = new Bitboard(board.rows(), board.columns(),
+            board.connect());
+      this.record = this.newRecord();
+   }
+
+   private GameRecord newRecord() {
+      return new GameRecord(this.known.rows(), this.known.columns(),
+            this.known.connect());
+   }
+
+   /**
+    * Adds the discs of the bot's field that were not there before.
+    *    Call it after the bot has parsed a field.
+    */
+   public void field() {
+      Bitboard board = this.bot.getBoard();
+      if ((this.known.discs(1) & ~board.discs(1)) != 0 ||
+            (this.known.discs(2) & ~board.discs(2)) != 0) {
+         this.gameOver();//a disc is gone: this is another game
+      }
+      //left to right, each column bottom up, so every disc lands on one
+      long added = board.mask() & ~this.known.mask();
+      while (added != 0) {
+         long bit = added & -added;
+         added ^= bit;
+         int player = (board.discs(1) & bit) != 0 ? 1 : 2;
+         this.record.addPly(
+               board.column(Long.numberOfTrailingZeros(bit)), player);
+      }
+      this.known.copyFrom(board);
+   }
+
+   /**
+    * @param column     the column we answered
+    * @param micros     how long the bot took to choose it
+    * @param timeLeft   the milliseconds the engine said we had left
+    */
+   public void move(int column, long micros, int timeLeft) {
+      if (column < 0 || column >= this.known.columns() ||
+            this.known.heightOf(column) >= this.known.rows()) {
+         return;//the engine does not place it, so it is not part of the game
+      }
+      this.record.setSettings(this.bot.myID, this.bot.timebank,
+            this.bot.timePerMove);
+      this.record.addMove(column, micros, timeLeft);
+      this.known.play(column, this.bot.myID);
+   }
+
+   /**
+    * Adds the game so far to the log (if we played in it) and starts a new
+    *    record.
+    */
+   public void gameOver() {
+      if (this.record.getMoves() > 0) {
+         this.log.add(this.record);
+      }
+      this.record = this.newRecord();
+      this.known.clear();
+   }
+}
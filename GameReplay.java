@@ -0,0 +1,249 @@
+package bot;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * GameReplay class
+ *
+ * Plays the games of a GameLog again, offline: every field we were asked
+ *    to move in is sent to a bot as the engine sent it, and the bot's
+ *    answer and the time it took are compared with the recorded ones. A
+ *    slow or losing move from a real game can be reproduced this way, and
+ *    a change to a bot checked against the games it used to play.
+ *
+ * Some things to note when interacting with this class.
+ *    Every game gets a new bot (from a Referee.BotFactory), with the
+ *       settings the engine gave in the recorded game, and goes through a
+ *       BotParser, so the bot runs the same code it runs for real.
+ *    The engine's clock is replayed too: "action move" gets the time bank
+ *       that was recorded, so a bot that plans its time (see TimeManager)
+ *       plans it the same way. A bot that thinks for as long as it has time
+ *       can still answer differently when the host is faster or slower.
+ *    Timings are in microseconds: recorded is how long chooseMove took in
+ *       the game (not counting the write of the answer to the engine),
+ *       replayed how long the whole "action move" took here, where the
+ *       answer is only written to memory.
+ *
+ * Usage: java bot.GameReplay [bot=trap|search|mcts] [book=PATH]
+ *          [warmup=MILLIS] [rows=N] [columns=N] [connect=N] [verbose] LOG...
+ *    e.g. java bot.GameReplay games.log games.log.1
+ *    prints every move that came out differently, then a summary. The
+ *    size is only the size of the warm-up; games are replayed at the size
+ *    they were recorded at.
+ *
+ * @version 10/16/26
+ */
+public class GameReplay {
+
+   private final Referee.BotFactory bots;
+   private OpeningBook book;
+   private boolean verbose;
+   private final LatencyHistogram recorded = new LatencyHistogram();
+   private final LatencyHistogram replayed = new LatencyHistogram();
+   private int games;
+   private int moves;
+   private int mismatches;
+
+   /**
+    * @param bots makes the bot every game is replayed with
+    */
+   public GameReplay(Referee.BotFactory bots) {
+      this.bots = bots;
+   }
+
+   /**
+    * @param book the book the bots play the opening from, or null
+    */
+   public void setOpeningBook(OpeningBook book) {
+      this.book = book;
+   }
+
+   /**
+    * @param verbose true to print every move, not just the ones that came
+    *                   out differently
+    */
+   public void setVerbose(boolean verbose) {
+      this.verbose = verbose;
+   }
+
+   /**
+    * Replays every game of a log file.
+    *
+    * @Precondition: the file is a GameLog; otherwise, throws an IOException
+    *                (a record cut short at the end is left out)
+    * @param file
+    * @throws IOException
+    */
+   public void replay(File file) throws IOException {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(
+            new FileInputStream(file)));
+      try {
+         while (true) {
+            GameRecord record;
+            try {
+               record = GameRecord.read(in);
+            } catch (EOFException e) {
+               break;//the end, or a record that was cut short
+            }
+            this.replay(record, file.getName() + " game " + this.games);
+         }
+      } finally {
+         in.close();
+      }
+   }
+
+   /**
+    * Replays one game, printing the moves that came out differently.
+    *
+    * @param record
+    * @param name    what the game is called in what is printed
+    */
+   public void replay(GameRecord record, String name) {
+      BotStarter bot = this.bots.newBot(record.getRows(),
+            record.getColumns(), record.getConnect());
+      if (this.book != null) {
+         bot.setOpeningBook(this.book);
+      }
+      ByteArrayOutputStream answers = new ByteArrayOutputStream();
+      //commands are handed to the parser one at a time, never read
+      BotParser parser = new BotParser(bot,
+            new ByteArrayInputStream(new byte[0]), answers);
+      parser.handle("settings timebank " + record.getTimebank());
+      parser.handle("settings time_per_move " + record.getTimePerMove());
+      parser.handle("settings your_botid " + record.getId());
+      try {
+         int move = 0;
+         for (int ply = 0; ply < record.getPlies(); ply++) {
+            if (!record.isOurs(ply)) {
+               continue;
+            }
+            parser.handle("update game field " + record.field(ply));
+            answers.reset();
+            long start = System.nanoTime();
+            parser.handle("action move " + record.timeLeft(move));
+            long micros = (System.nanoTime() - start) / 1000;
+            int column = column(answers.toString());
+            this.recorded.record(record.micros(move));
+            this.replayed.record(micros);
+            boolean same = column == record.column(ply);
+            if (!same) {
+               this.mismatches++;
+            }
+            if (!same || this.verbose) {
+               System.out.println(name + " ply " + ply + ": recorded " +
+                     record.column(ply) + " in " + record.micros(move) +
+                     " us, replayed " + column + " in " + micros + " us");
+            }
+            this.moves++;
+            move++;
+         }
+      } finally {
+         bot.stopPondering();
+         bot.gameOver();
+         bot.close();
+      }
+      this.games++;
+   }
+
+   /**
+    * @param answer  what a bot answered to "action move"
+    * @return  the column of a place_disc answer; otherwise, -1
+    */
+   private static int column(String answer) {
+      answer = answer.trim();
+      if (!answer.startsWith("place_disc ")) {
+         return -1;
+      }
+      try {
+         return Integer.parseInt(answer.substring("place_disc ".length()));
+      } catch (NumberFormatException e) {
+         return -1;
+      }
+   }
+
+   /**
+    * @return  what the replays came to: games, moves, moves that came out
+    *             differently, and the timings
+    */
+   public String summary() {
+      return this.games + " games, " + this.moves + " moves, " +
+            this.mismatches + " different\n" +
+            timings("recorded", this.recorded) +
+            timings("replayed", this.replayed);
+   }
+
+   private static String timings(String name, LatencyHistogram micros) {
+      return name + ": p50 " + micros.getValueAtPercentile(50) + " us, p99 " +
+            micros.getValueAtPercentile(99) + " us, max " + micros.getMax() +
+            " us\n";
+   }
+
+   public int getGames() {
+      return this.games;
+   }
+
+   public int getMoves() {
+      return this.moves;
+   }
+
+   /**
+    * @return  the number of moves that came out differently
+    */
+   public int getMismatches() {
+      return this.mismatches;
+   }
+
+   public static void main(String[] args) throws IOException {
+      String name = "trap";
+      String bookPath = null;
+      long warmup = Warmup.DEFAULT_MILLIS;
+      boolean verbose = false;
+      int rows = 6;
+      int columns = 7;
+      int connect = WinningLines.STANDARD_LENGTH;
+      List<File> files = new ArrayList<File>();
+      for (String arg : args) {
+         String value = arg.substring(arg.indexOf('=') + 1);
+         if (arg.startsWith("bot=")) {
+            name = value;
+         } else if (arg.startsWith("book=")) {
+            bookPath = value;
+         } else if (arg.startsWith("warmup=")) {
+            warmup = Long.parseLong(value);
+         } else if (arg.startsWith("rows=")) {
+            rows = Integer.parseInt(value);
+         } else if (arg.startsWith("columns=")) {
+            columns = Integer.parseInt(value);
+         } else if (arg.startsWith("connect=")) {
+            connect = Integer.parseInt(value);
+         } else if (arg.equals("verbose")) {
+            verbose = true;
+         } else {
+            files.add(new File(arg));
+         }
+      }
+      GameReplay replay = new GameReplay(Referee.newBot(name));
+      if (bookPath != null) {
+         replay.setOpeningBook(new OpeningBook(new File(bookPath)));
+      }
+      replay.setVerbose(verbose);
+      if (warmup > 0) {
+         //recorded moves were played warm (see Warmup); so are these
+         new Warmup(Warmup.newBot(name), rows, columns, connect,
+               warmup).run();
+      }
+      for (File file : files) {
+         replay.replay(file);
+      }
+      System.out.print(replay.summary());
+   }
+}
@@ -0,0 +1,118 @@
+package bot;
+
+import java.util.Arrays;
+
+/**
+ * LatencyHistogram class
+ *
+ * Counts values (e.g. nanoseconds) in buckets, the way HdrHistogram does,
+ *    so percentiles can be read back without keeping every value.
+ *
+ * Some things to note when interacting with this class.
+ *    Values below 32 have a bucket each. Above that, every power of two is
+ *       split into 16 buckets of equal width, so a value read back is never
+ *       off by more than 1/16 (about 6%) of itself.
+ *    Recording a value is a few shifts and an increment: nothing is
+ *       allocated, so it can be done on every move.
+ *    It is not thread-safe.
+ *
+ * @version 10/16/26
+ */
+public class LatencyHistogram {
+
+   //values below this have a bucket each
+   private static final int LINEAR = 32;
+   //buckets per power of two above LINEAR
+   private static final int SUB_BUCKETS = 16;
+   private static final int SUB_BITS = 4;
+
+   private final long[] counts;
+   private long count;
+   private long total;
+   private long max;
+
+   public LatencyHistogram() {
+      //enough buckets for any positive long
+      this.counts = new long[LINEAR + (Long.SIZE - 6) * SUB_BUCKETS];
+   }
+
+   /**
+    * @param value   a value that is not negative (negative values count as 0)
+    */
+   public void record(long value) {
+      if (value < 0) {
+         value = 0;
+      }
+      this.counts[index(value)]++;
+      this.count++;
+      this.total += value;
+      if (value > this.max) {
+         this.max = value;
+      }
+   }
+
+   private static int index(long value) {
+      if (value < LINEAR) {
+         return (int) value;
+      }
+      //the top SUB_BITS + 1 bits of the value pick the bucket
+      int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+      int top = (int) (value >>> shift);//from SUB_BUCKETS to 2 * SUB_BUCKETS
+      return LINEAR + (shift - 1) * SUB_BUCKETS + top - SUB_BUCKETS;
+   }
+
+   /**
+    * @return  the largest value in the bucket with the given index
+    */
+   private static long highestValue(int index) {
+      if (index < LINEAR) {
+         return index;
+      }
+      int shift = (index - LINEAR) / SUB_BUCKETS + 1;
+      long top = (index - LINEAR) % SUB_BUCKETS + SUB_BUCKETS;
+      return ((top + 1) << shift) - 1;
+   }
+
+   /**
+    * @param percentile from 0.0 to 100.0
+    * @return  a value that at least that percentage of the values are at
+    *             most (0 if nothing was recorded)
+    */
+   public long getValueAtPercentile(double percentile) {
+      if (this.count == 0) {
+         return 0;
+      }
+      long rank = Math.max((long) Math.ceil(percentile / 100.0 * this.count),
+            1);
+      long seen = 0;
+      for (int i = 0; i < this.counts.length; i++) {
+         seen += this.counts[i];
+         if (seen >= rank) {
+            return Math.min(highestValue(i), this.max);
+         }
+      }
+      return this.max;
+   }
+
+   public long getCount() {
+      return this.count;
+   }
+
+   public long getMax() {
+      return this.max;
+   }
+
+   public double getMean() {
+      return this.count == 0 ? 0 : (double) this.total / this.count;
+   }
+
+   /**
+    * @Postcondition: nothing is recorded
+    */
+   public void reset() {
+      Arrays.fill(this.counts, 0L);
+      this.count = 0;
+      this.total = 0;
+      this.max = 0;
+   }
+}
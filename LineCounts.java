@@ -0,0 +1,120 @@
+package bot;
+
+import java.util.Arrays;
+
+/**
+ * LineCounts class
+ *
+ * Keeps the number of tokens each player has in every winning line (see
+ *    WinningLines), and is updated one disc at a time instead of being
+ *    recounted from the field.
+ *
+ * Because the counts are kept current, it also knows for every location how
+ *    many lines through it are one token short of a win for a player (3
+ *    tokens of four, in the standard game) and have none of the other.
+ *    That makes asking if a location is in the position to win a lookup.
+ *
+ * Counts are stored in byte arrays indexed by:
+ *    line * 2 + (id - 1)      for the tokens of a player in a line
+ *    location * 2 + (id - 1)  for the winning lines through a location
+ * where location is row * columns + column.
+ *
+ * @version 10/16/26
+ */
+public final class LineCounts {
+
+   private final WinningLines lines;
+   private final byte[] tokens;
+   private final byte[] wins;
+
+   public LineCounts(WinningLines lines) {
+      this.lines = lines;
+      this.tokens = new byte[lines.size() * 2];
+      this.wins = new byte[lines.rows() * lines.columns() * 2];
+   }
+
+   /**
+    * @Postcondition: every line is empty
+    */
+   public void clear() {
+      Arrays.fill(this.tokens, (byte) 0);
+      Arrays.fill(this.wins, (byte) 0);
+   }
+
+   /**
+    * Counts a disc of the player with the given id at the given location.
+    *
+    * @Precondition: the location was free
+    * @param row
+    * @param col
+    * @param id   the id of a player (must be 1 or 2)
+    */
+   public void add(int row, int col, int id) {
+      this.update(row, col, id, 1);
+   }
+
+   /**
+    * Takes back a disc that was counted with add.
+    *
+    * @Precondition: the location holds a disc of the player with the given id
+    * @param row
+    * @param col
+    * @param id   the id of a player (must be 1 or 2)
+    */
+   public void remove(int row, int col, int id) {
+      this.update(row, col, id, -1);
+   }
+
+   private void update(int row, int col, int id, int delta) {
+      for (int i = 0; i < this.lines.numLines(row, col); i++) {
+         int line = this.lines.line(row, col, i);
+         boolean oneWins = this.isWinningLine(line, 1);
+         boolean twoWins = this.isWinningLine(line, 2);
+         this.tokens[line * 2 + id - 1] += delta;
+         if (oneWins != this.isWinningLine(line, 1)) {
+            this.markLine(line, 1, oneWins ? -1 : 1);
+         }
+         if (twoWins != this.isWinningLine(line, 2)) {
+            this.markLine(line, 2, twoWins ? -1 : 1);
+         }
+      }
+   }
+
+   /**
+    * @return  true if the line is one token of the player short of a win and
+    *             has none of the other player
+    */
+   private boolean isWinningLine(int line, int id) {
+      return this.tokens[line * 2 + id - 1] == this.lines.length() - 1 &&
+            this.tokens[line * 2 + 2 - id] == 0;
+   }
+
+   private void markLine(int line, int id, int delta) {
+      for (int i = 0; i < this.lines.length(); i++) {
+         int cell = this.lines.row(line, i) * this.lines.columns() +
+               this.lines.column(line, i);
+         this.wins[cell * 2 + id - 1] += delta;
+      }
+   }
+
+   /**
+    * @param line
+    * @param id   the id of a player (must be 1 or 2)
+    * @return  the number of tokens of the player in the line (0 to the
+    *             length of the line)
+    */
+   public int count(int line, int id) {
+      return this.tokens[line * 2 + id - 1];
+   }
+
+   /**
+    * @param row
+    * @param col
+    * @param id   the id of a player (must be 1 or 2)
+    * @return  true if a line through the location is one token of the
+    *             player short of a win and has none of the other player
+    */
+   public boolean positionToWin(int row, int col, int id) {
+      return this.wins[(row * this.lines.columns() + col) * 2 + id - 1] > 0;
+   }
+}
@@ -0,0 +1,125 @@
+package bot;
+
+import java.io.PrintStream;
+
+/**
+ * This bot plays what did best in many quick games.
+ *    Unlike TrapBot, which follows its rules to a move, it plays thousands
+ *    of games out from the position and plays the move that won most often
+ *    (see MonteCarloSearch). TrapBot's rules to win and to block still
+ *    police those games, so they are not wasted on blunders.
+ *
+ * It thinks for as long as the clock gives it (see TimeManager), and the
+ *    more it thinks, the better it plays; a move it is forced to make is
+ *    made at once. Its search can run on several threads.
+ *
+ * How fast it plays games out (playouts per second) is the measure of how
+ *    well it does with its time: with a report stream, it tells how many it
+ *    played at the end of each game.
+ *
+ * @version 10/16/26
+ */
+public class MctsBot extends BotStarter {
+
+   private final MonteCarloSearch search;
+   private final TimeManager time;
+   //null unless the games are reported
+   private PrintStream report;
+   //this game so far
+   private int moves;
+   private long playouts;
+   private long nanos;
+
+   public MctsBot(int rows, int columns) {
+      this(rows, columns, WinningLines.STANDARD_LENGTH,
+            MonteCarloSearch.DEFAULT_NODES, 1);
+   }
+
+   /**
+    * @param rows
+    * @param columns
+    * @param connect the number of discs in a line that wins the game
+    * @param nodes   the size of the search's pool of nodes
+    * @param threads the number of threads to search with
+    */
+   public MctsBot(int rows, int columns, int connect, int nodes,
+         int threads) {
+      super(rows, columns, connect);
+      this.search = new MonteCarloSearch(rows, columns, connect, nodes,
+            threads);
+      this.time = new TimeManager();
+   }
+
+   @Override
+   public int makeTurn() {
+      Bitboard board = super.getBoard();
+      int free = Long.bitCount(board.freeMask());
+      int cells = board.rows() * board.columns();
+      //we make every other move, starting with this one
+      this.time.start(this.timeLeft, this.timePerMove, (free + 1) / 2,
+            (double) (cells - free) / cells);
+      int column = this.search.bestMove(board, this.myID, this.time);
+      this.moves++;
+      this.playouts += this.search.getPlayouts();
+      this.nanos += this.search.getNanos();
+      return column;
+   }
+
+   /**
+    * @Postcondition: the playouts of our move (if any are running) stop at
+    *                 once, and so do those of every move after it
+    */
+   @Override
+   public void cancel() {
+      this.time.cancel();
+   }
+
+   /**
+    * @Postcondition: the search's helper threads (if any) are gone
+    */
+   @Override
+   public void close() {
+      this.search.close();
+   }
+
+   /**
+    * @param report  where to report each game (never System.out, which the
+    *                   engine reads); null not to report
+    */
+   public void setReport(PrintStream report) {
+      this.report = report;
+   }
+
+   /**
+    * @Postcondition: the game (if reported) is reported, and the counts
+    *                 start over
+    */
+   @Override
+   public void gameOver() {
+      super.gameOver();
+      if (this.report != null && this.moves > 0) {
+         this.report.println("mcts: " + this.moves + " moves, " +
+               this.playouts + " playouts on " + this.search.getThreads() +
+               (this.search.getThreads() == 1 ? " thread, " : " threads, ") +
+               this.getPlayoutsPerSecond() + " playouts/s");
+      }
+      this.moves = 0;
+      this.playouts = 0;
+      this.nanos = 0;
+   }
+
+   /**
+    * @return  the playouts per second of the game so far
+    */
+   public long getPlayoutsPerSecond() {
+      return this.nanos == 0 ? 0 : this.playouts * 1000000000L / this.nanos;
+   }
+
+   /**
+    * @return  the search used to pick moves, to look at how the last search
+    *             went (playouts and time)
+    */
+   public MonteCarloSearch getSearch() {
+      return this.search;
+   }
+}
@@ -0,0 +1,461 @@
+package bot;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * MonteCarloSearch class
+ *
+ * Picks a move by Monte Carlo tree search: it plays many quick games
+ *    (playouts) from the position and grows a tree of the moves that did
+ *    best in them. Each playout goes down the tree picking moves by UCT
+ *    (the move's mean score plus a bonus for moves tried less often), adds
+ *    to the tree where it leaves it, plays the game out from there and
+ *    scores every move on its way down with the result. The move tried
+ *    most often at the root is played.
+ *
+ * Some things to note when interacting with this class.
+ *    Playouts are not quite random: they are policed by TrapBot's first
+ *       rules. A player who can win does; otherwise a player blocks the
+ *       opponent's immediate win (and loses at once if there are two to
+ *       block); otherwise a player does not play right below a cell that
+ *       wins for the opponent, unless every move does. The tree leaves out
+ *       the moves these rules rule out too (but not the last one), so a
+ *       forced move is answered without searching.
+ *    The nodes of the tree are kept in a pool of arrays, indexed by node,
+ *       made once: a node is its index. The children of a node are next to
+ *       each other, so a node only keeps where they start and how many
+ *       there are. A search starts the pool over, and nothing is allocated
+ *       while it runs. When the pool is full, the tree stops growing and
+ *       the playouts go on from its leaves.
+ *    It searches on several threads at once, all in the same tree. Counts
+ *       are added to atomically, and a node is expanded by one thread only
+ *       (the others play out from it until it is done). A thread counts a
+ *       visit to every node on its way down at once, and the score only
+ *       once its playout is over (a virtual loss), so threads going down
+ *       at the same time spread out over the tree instead of all following
+ *       the same path.
+ *    Scores are in half points, from the point of view of the player who
+ *       made the move into the node: 2 for a win, 1 for a draw.
+ *    It is anytime: it plays out until the soft budget of its TimeManager
+ *       is used up (or setMaxPlayouts playouts are done), and its answer
+ *       gets better the longer it runs.
+ *
+ * @version 10/16/26
+ */
+public class MonteCarloSearch {
+
+   //nodes in the pool unless told otherwise (about 15 MB)
+   public static final int DEFAULT_NODES = 1 << 20;
+   //memory a node of the pool takes: visits, scores and children (ints),
+   //then the number of children, the move and the result (bytes)
+   public static final int NODE_BYTES = 4 + 4 + 4 + 1 + 1 + 1;
+   //how much UCT favors moves tried less often over moves that did well
+   private static final double EXPLORATION = 1.0;
+   //a leaf is added to once it has been visited this many times; fewer
+   //nodes are spent on moves that are only tried once
+   private static final int EXPAND_VISITS = 2;
+   //the main thread looks at the clock every this many playouts
+   private static final int CLOCK_INTERVAL = 64;
+   //no more playouts than this, so the half points fit in an int
+   private static final int PLAYOUT_LIMIT = 1 << 29;
+   //children of a node that has none yet, or that is being expanded
+   private static final int UNEXPANDED = -1;
+   private static final int EXPANDING = -2;
+   //how the game stands after the move into a node
+   private static final byte GOING_ON = 0;
+   private static final byte WON = 1;//by the player who made it
+   private static final byte DRAWN = 2;
+   //the random moves of every search come from here
+   private static final long SEED = 0x9E3779B97F4A7C15L;
+
+   private final int cells;
+   private final int capacity;
+   //by node: the number of visits, the half points scored, the first child
+   //(or UNEXPANDED or EXPANDING), the number of children, the column of
+   //the move into it and how the game stands after the move
+   private final AtomicIntegerArray visits;
+   private final AtomicIntegerArray scores;
+   private final AtomicIntegerArray children;
+   private final byte[] numChildren;
+   private final byte[] moves;
+   private final byte[] results;
+   //the nodes in use
+   private final AtomicInteger size = new AtomicInteger();
+
+   private final Worker main;
+   private final Worker[] helpers;
+   private final ExecutorService pool;
+   private final Future<?>[] running;
+   private volatile boolean stopped;
+   private int maxPlayouts = PLAYOUT_LIMIT;
+   private Bitboard position;
+   private int rootId;
+   private long playouts;
+   private long nanos;
+
+   /**
+    * @Precondition: threads is at least 1 and nodes is more than columns;
+    *                otherwise, throws an IllegalArgumentException
+    * @param rows
+    * @param columns
+    * @param connect the number of discs in a line that wins the game
+    * @param nodes   the size of the pool of nodes
+    * @param threads the number of threads to search with
+    */
+   public MonteCarloSearch(int rows, int columns, int connect, int nodes,
+         int threads) {
+      if (threads < 1 || nodes <= columns) {
+         throw new IllegalArgumentException();
+      }
+      this.cells = rows * columns;
+      this.capacity = nodes;
+      this.visits = new AtomicIntegerArray(nodes);
+      this.scores = new AtomicIntegerArray(nodes);
+      this.children = new AtomicIntegerArray(nodes);
+      this.numChildren = new byte[nodes];
+      this.moves = new byte[nodes];
+      this.results = new byte[nodes];
+      this.main = new Worker(rows, columns, connect, SEED);
+      this.helpers = new Worker[threads - 1];
+      for (int i = 0; i < this.helpers.length; i++) {
+         this.helpers[i] = new Worker(rows, columns, connect, SEED + i + 1);
+      }
+      this.running = new Future<?>[this.helpers.length];
+      if (this.helpers.length == 0) {
+         this.pool = null;
+      } else {
+         this.pool = Executors.newFixedThreadPool(this.helpers.length,
+               new ThreadFactory() {
+                  public Thread newThread(Runnable task) {
+                     Thread thread = new Thread(task, "mcts-helper");
+                     thread.setDaemon(true);
+                     return thread;
+                  }
+               });
+      }
+   }
+
+   /**
+    * @param maxPlayouts   the most playouts a search plays (the clock can
+    *                         still stop it sooner)
+    */
+   public void setMaxPlayouts(int maxPlayouts) {
+      this.maxPlayouts = Math.min(Math.max(maxPlayouts, 1), PLAYOUT_LIMIT);
+   }
+
+   /**
+    * @Precondition: the player to move has a legal move and the game is not
+    *                over
+    * @param position   the position to search (it is not changed)
+    * @param id         the id of the player to move
+    * @param time       the clock of this move, already started
+    * @return  the column to place a disc
+    */
+   public int bestMove(Bitboard position, int id, TimeManager time) {
+      long start = System.nanoTime();
+      this.position = position;
+      this.rootId = id;
+      this.stopped = false;
+      this.size.set(1);
+      this.initNode(0, 0, GOING_ON);
+      this.main.reset();
+      this.main.board.copyFrom(position);
+      this.expand(this.main.board, 0, id);
+      if (this.numChildren[0] > 1) {
+         for (int i = 0; i < this.helpers.length; i++) {
+            final Worker helper = this.helpers[i];
+            helper.reset();
+            this.running[i] = this.pool.submit(new Runnable() {
+               public void run() {
+                  while (!MonteCarloSearch.this.isStopped()) {
+                     helper.playout();
+                  }
+               }
+            });
+         }
+         for (int i = 1; !this.isStopped(); i++) {
+            this.main.playout();
+            if (i % CLOCK_INTERVAL == 0 && time.softExpired()) {
+               this.stopped = true;
+            }
+         }
+         this.stopped = true;
+         for (int i = 0; i < this.helpers.length; i++) {
+            this.waitFor(this.running[i]);
+         }
+      }
+      //the move tried most often is the one the search trusts most
+      int first = this.children.get(0);
+      int best = first;
+      for (int c = first + 1; c < first + this.numChildren[0]; c++) {
+         if (this.visits.get(c) > this.visits.get(best)) {
+            best = c;
+         }
+      }
+      this.playouts = this.main.playouts;
+      for (Worker helper : this.helpers) {
+         this.playouts += helper.playouts;
+      }
+      this.nanos = System.nanoTime() - start;
+      return this.moves[best];
+   }
+
+   private boolean isStopped() {
+      return this.stopped || this.visits.get(0) >= this.maxPlayouts;
+   }
+
+   private void waitFor(Future<?> helper) {
+      boolean interrupted = false;
+      while (true) {
+         try {
+            helper.get();
+            break;
+         } catch (InterruptedException e) {
+            interrupted = true;
+         } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+         }
+      }
+      if (interrupted) {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   private void initNode(int node, int move, byte result) {
+      this.visits.set(node, 0);
+      this.scores.set(node, 0);
+      this.numChildren[node] = 0;
+      this.moves[node] = (byte) move;
+      this.results[node] = result;
+      this.children.set(node, UNEXPANDED);
+   }
+
+   /**
+    * Gives a node its children: the moves the rules of the playouts allow,
+    *    without the one about cells below the opponent's wins.
+    *
+    * @param board   the position of the node
+    * @param node
+    * @param id      the id of the player to move
+    * @return  false if another thread is expanding the node, or the pool is
+    *             full
+    */
+   private boolean expand(Bitboard board, int node, int id) {
+      long legal = board.legalMoves();
+      long moves = board.winningCells(id) & legal;
+      boolean wins = moves != 0;
+      if (!wins) {
+         moves = board.winningCells(3 - id) & legal;
+      }
+      if (moves != 0) {
+         moves &= -moves;//one win is enough; more than one block is lost
+      } else {
+         moves = legal;
+      }
+      int n = Long.bitCount(moves);
+      if (this.size.get() + n > this.capacity ||
+            !this.children.compareAndSet(node, UNEXPANDED, EXPANDING)) {
+         return false;
+      }
+      int first = this.size.getAndAdd(n);
+      if (first + n > this.capacity) {
+         this.children.set(node, UNEXPANDED);
+         return false;
+      }
+      boolean last = board.numDiscs() + 1 == this.cells;
+      for (int c = first; moves != 0; c++) {
+         long bit = moves & -moves;
+         moves ^= bit;
+         this.initNode(c, board.column(Long.numberOfTrailingZeros(bit)),
+               wins ? WON : last ? DRAWN : GOING_ON);
+      }
+      this.numChildren[node] = (byte) n;
+      this.children.set(node, first);//the children are ready
+      return true;
+   }
+
+   /**
+    * @return  the child of the node with the best UCT value
+    */
+   private int select(int node) {
+      int first = this.children.get(node);
+      int end = first + this.numChildren[node];
+      double logVisits = Math.log(Math.max(this.visits.get(node), 1));
+      int best = first;
+      double bestValue = Double.NEGATIVE_INFINITY;
+      for (int c = first; c < end; c++) {
+         int n = this.visits.get(c);
+         if (n == 0) {
+            return c;
+         }
+         double value = this.scores.get(c) / (2.0 * n) +
+               EXPLORATION * Math.sqrt(logVisits / n);
+         if (value > bestValue) {
+            bestValue = value;
+            best = c;
+         }
+      }
+      return best;
+   }
+
+   /**
+    * What each thread of the search keeps to itself.
+    */
+   private class Worker {
+
+      private final Bitboard board;
+      //the nodes of the playout's way down the tree, from the root
+      private final int[] path;
+      private long random;
+      private long playouts;
+
+      Worker(int rows, int columns, int connect, long seed) {
+         this.board = new Bitboard(rows, columns, connect);
+         this.path = new int[rows * columns + 1];
+         this.random = seed;
+      }
+
+      void reset() {
+         this.playouts = 0;
+      }
+
+      /**
+       * Goes down the tree from the root, adds to it, plays the game out
+       *    and scores the nodes on the way.
+       */
+      void playout() {
+         MonteCarloSearch search = MonteCarloSearch.this;
+         Bitboard board = this.board;
+         board.copyFrom(search.position);
+         int id = search.rootId;
+         int node = 0;
+         int depth = 0;
+         int winner;
+         search.visits.incrementAndGet(0);
+         this.path[depth++] = 0;
+         while (true) {
+            byte result = search.results[node];
+            if (result != GOING_ON) {
+               winner = result == WON ? 3 - id : 0;
+               break;
+            }
+            if (search.children.get(node) < 0 &&
+                  (search.visits.get(node) < EXPAND_VISITS ||
+                  !search.expand(board, node, id))) {
+               winner = this.playOut(id);
+               break;
+            }
+            node = search.select(node);
+            board.play(search.moves[node], id);
+            id = 3 - id;
+            search.visits.incrementAndGet(node);//the virtual loss
+            this.path[depth++] = node;
+         }
+         //the root's move was made by the player not to move
+         int mover = 3 - search.rootId;
+         for (int i = 0; i < depth; i++) {
+            int score = winner == 0 ? 1 : winner == mover ? 2 : 0;
+            if (score != 0) {
+               search.scores.addAndGet(this.path[i], score);
+            }
+            mover = 3 - mover;
+         }
+         this.playouts++;
+      }
+
+      /**
+       * Plays the game out from board by the rules of the playouts.
+       *
+       * @param id   the id of the player to move
+       * @return  the id of the winner, or 0 for a draw
+       */
+      private int playOut(int id) {
+         Bitboard board = this.board;
+         while (true) {
+            long legal = board.legalMoves();
+            if (legal == 0) {
+               return 0;
+            }
+            if ((board.winningCells(id) & legal) != 0) {
+               return id;
+            }
+            long oppWins = board.winningCells(3 - id);
+            long moves = oppWins & legal;
+            if ((moves & (moves - 1)) != 0) {
+               return 3 - id;//only one of them can be blocked
+            }
+            if (moves == 0) {
+               //shifting down by one bit moves each winning cell onto the
+               //location directly below it
+               moves = legal & ~(oppWins >>> 1);
+               if (moves == 0) {
+                  moves = legal;
+               }
+            }
+            long bit = this.randomBit(moves);
+            board.play(board.column(Long.numberOfTrailingZeros(bit)), id);
+            id = 3 - id;
+         }
+      }
+
+      /**
+       * @return  one of the bits of moves, picked at random
+       */
+      private long randomBit(long moves) {
+         //xorshift64*
+         this.random ^= this.random >>> 12;
+         this.random ^= this.random << 25;
+         this.random ^= this.random >>> 27;
+         long next = (this.random * 0x2545F4914F6CDD1DL) >>> 32;
+         int skip = (int) ((next * Long.bitCount(moves)) >>> 32);
+         for (int i = 0; i < skip; i++) {
+            moves &= moves - 1;
+         }
+         return moves & -moves;
+      }
+   }
+
+   /**
+    * @return  the number of threads searching
+    */
+   public int getThreads() {
+      return this.helpers.length + 1;
+   }
+
+   /**
+    * @return  the number of playouts of the last search, on all threads
+    */
+   public long getPlayouts() {
+      return this.playouts;
+   }
+
+   /**
+    * @return  how long the last search took, in nanoseconds
+    */
+   public long getNanos() {
+      return this.nanos;
+   }
+
+   /**
+    * @Postcondition: the helper threads (if any) are gone; the search must
+    *                 not be used again
+    */
+   public void close() {
+      if (this.pool != null) {
+         this.pool.shutdownNow();
+      }
+   }
+
+   /**
+    * @return  the nodes of the pool the last search used
+    */
+   public int getNodes() {
+      return Math.min(this.size.get(), this.capacity);
+   }
+}
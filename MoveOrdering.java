@@ -0,0 +1,126 @@
+package bot;
+
+import java.util.Arrays;
+
+/**
+ * MoveOrdering class
+ *
+ * Remembers which moves refuted positions during a search, so that Negamax
+ *    can search them first elsewhere: the sooner the best move is searched,
+ *    the sooner alpha-beta cuts the rest off.
+ *    Killer moves are the last KILLERS locations a disc was placed in that
+ *       caused a cutoff at each ply. A move that refutes one position often
+ *       refutes the positions next to it in the tree too (e.g. a block that
+ *       is needed whatever the opponent did the move before). They are
+ *       locations rather than columns, since a column is a different
+ *       location at every height, and the opponent's last move may have
+ *       moved it.
+ *    The history table counts, for each player and location, the cutoffs
+ *       the player caused by placing a disc there, weighted by the square of
+ *       the depth left (cutoffs near the root save the most). It counts
+ *       locations too. The counts stay below HISTORY_LIMIT: once one gets
+ *       there, the whole table is aged.
+ *
+ * Some things to note when interacting with this class.
+ *    A location is the index of its bit in a Bitboard.
+ *    newSearch ages the history between moves: every count is halved, so
+ *       what was learned about the last position still counts, but less
+ *       than what is learned about this one. The killers are forgotten,
+ *       since the plies of the last search are not the plies of this one.
+ *    It is not thread-safe; each Negamax keeps its own.
+ *
+ * @version 10/16/26
+ */
+public class MoveOrdering {
+
+   //killer moves kept per ply
+   public static final int KILLERS = 2;
+   //history counts are always smaller than this
+   public static final int HISTORY_LIMIT = 1 << 20;
+   private static final int NONE = -1;
+
+   //by ply, the locations of the killer moves, most recent first (NONE for
+   //none)
+   private final int[][] killers;
+   //by player (id - 1) and location
+   private final int[][] history;
+
+   /**
+    * @param maxPly  the number of plies a search can go past its root
+    */
+   public MoveOrdering(int maxPly) {
+      this.killers = new int[maxPly + 1][KILLERS];
+      this.history = new int[2][Long.SIZE];
+      this.clear();
+   }
+
+   /**
+    * @param ply  0 to maxPly
+    * @param i    0 to KILLERS - 1: the most recent first
+    * @return  the location of the i-th killer move at the ply, or -1
+    */
+   public int killer(int ply, int i) {
+      return this.killers[ply][i];
+   }
+
+   /**
+    * @param id   the id of the player placing the disc
+    * @param cell the bit index of the location
+    * @return  how much the player placing a disc there has caused cutoffs
+    */
+   public int history(int id, int cell) {
+      return this.history[id - 1][cell];
+   }
+
+   /**
+    * Remembers a move that caused a cutoff.
+    *
+    * @param id      the id of the player that made the move
+    * @param ply     the ply of the position the move was made in
+    * @param cell    the bit index of the location it placed a disc in
+    * @param depth   how many plies were left to search
+    */
+   public void cutoff(int id, int ply, int cell, int depth) {
+      int[] killers = this.killers[ply];
+      if (killers[0] != cell) {
+         for (int i = KILLERS - 1; i > 0; i--) {
+            killers[i] = killers[i - 1];
+         }
+         killers[0] = cell;
+      }
+      int count = this.history[id - 1][cell] += depth * depth;
+      if (count >= HISTORY_LIMIT) {
+         this.age();
+      }
+   }
+
+   /**
+    * @Postcondition: the killers are forgotten and the history is aged
+    */
+   public void newSearch() {
+      for (int[] killers : this.killers) {
+         Arrays.fill(killers, NONE);
+      }
+      this.age();
+   }
+
+   private void age() {
+      for (int[] counts : this.history) {
+         for (int i = 0; i < counts.length; i++) {
+            counts[i] >>= 1;
+         }
+      }
+   }
+
+   /**
+    * @Postcondition: nothing is remembered
+    */
+   public void clear() {
+      for (int[] killers : this.killers) {
+         Arrays.fill(killers, NONE);
+      }
+      for (int[] counts : this.history) {
+         Arrays.fill(counts, 0);
+      }
+   }
+}
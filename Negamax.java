@@ -0,0 +1,514 @@
+package bot;
+
+/**
+ * Negamax class
+ *
+ * A negamax search with alpha-beta pruning over a Bitboard.
+ *    Moves are searched in the order most likely to cut the rest off:
+ *       1. the best move stored in the TranspositionTable,
+ *       2. the moves that make the most threats (winning locations), since
+ *          they tend to win quickly or force the opponent's answer,
+ *       3. among those that make as many, the killer moves of the ply, then
+ *          the rest by their count in the history table (see MoveOrdering),
+ *          and center column first among equals (the center columns are
+ *          part of the most lines).
+ *       A win or a block never needs ordering: a win ends the search of the
+ *       position, and a block is the only move searched.
+ *    The search deepens one ply at a time until its TimeManager says stop or
+ *       it finds a forced result, and answers with the best move of the
+ *       deepest search that finished.
+ *    Forced moves (a win, the only block, or the only move that does not
+ *       lose at once) are answered without searching.
+ *
+ * The leaves are scored with TrapBot's rules in bitboard form:
+ *    1. If you can win, win.
+ *    2. Else if your opponent can win, prevent that win
+ *       (and if your opponent can win in two places, you have lost).
+ *    3. Never play directly below a location where the opponent wins.
+ *    4. Traps (two winning locations stacked on top of each other) and
+ *       threats in the rows that suit the player are worth the most, then
+ *       discs in locations with many possible wins.
+ *
+ * Scores are from the point of view of the player to move:
+ *    a win is WIN_SCORE minus the number of plies it takes, so quicker wins
+ *    score higher and slower losses score higher.
+ *
+ * Searched positions are kept in a TranspositionTable, so a position reached
+ *    again through a different order of moves is not searched twice, and the
+ *    best move found last time is searched first. The mirror image of a
+ *    searched position counts as searched too (see Bitboard.canonicalHash).
+ *
+ * @version 10/16/26
+ */
+public class Negamax {
+
+   public static final int WIN_SCORE = 100000;
+   //any score at least this big is a forced result
+   public static final int WIN_BOUND = WIN_SCORE - 1000;
+
+   private static final int STACK_TRAP_WEIGHT = 64;
+   private static final int GOOD_THREAT_WEIGHT = 24;
+   private static final int THREAT_WEIGHT = 8;
+   //how many nodes to search between looking at the clock
+   private static final int CLOCK_INTERVAL = 1023;
+   //move keys (see orderMoves): threats made, then killers, then history
+   //(which is below MoveOrdering.HISTORY_LIMIT, 1 << KILLER_SHIFT)
+   private static final int KILLER_SHIFT = 20;
+   private static final int THREAT_SHIFT = 22;
+
+   private final Bitboard board;
+   private final TranspositionTable table;
+   //columns in the order they are searched: center first
+   private final int[] order;
+   //masks of the locations that are in the same number of lines of four,
+   //   and that number
+   private final long[] weightMasks;
+   private final int[] weights;
+   private final MoveOrdering ordering;
+   //the moves of each ply, in the order they are searched, and their keys
+   private final int[][] moves;
+   private final int[][] moveKeys;
+
+   //how many plies deeper than usual each iteration searches
+   private int depthOffset;
+   //the deepest iteration to search (0 for no limit)
+   private int maxDepth;
+   private long nodes;
+   //positions whose search was cut off, and those cut off by the first move
+   private long cutoffs;
+   private long firstMoveCutoffs;
+   private TimeManager time;
+   private boolean aborted;
+   private int completedDepth;
+   private int bestScore;
+
+   /**
+    * @param rows
+    * @param columns
+    * @param connect the number of discs in a line that wins the game
+    * @param table   where searched positions are kept between searches
+    */
+   public Negamax(int rows, int columns, int connect,
+         TranspositionTable table) {
+      this.board = new Bitboard(rows, columns, connect);
+      this.table = table;
+      this.order = new int[columns];
+      for (int i = 0; i < columns; i++) {
+         //0, 1, -1, 2, -2, ... away from the center
+         int offset = (i + 1) / 2 * (i % 2 == 0 ? -1 : 1);
+         this.order[i] = (columns - 1) / 2 + offset;
+      }
+      this.ordering = new MoveOrdering(rows * columns);
+      this.moves = new int[rows * columns + 1][columns];
+      this.moveKeys = new int[rows * columns + 1][columns];
+      WinningLines lines = WinningLines.forSize(rows, columns, connect);
+      int maxLines = 0;
+      for (int row = 0; row < rows; row++) {
+         for (int col = 0; col < columns; col++) {
+            maxLines = Math.max(maxLines, lines.numLines(row, col));
+         }
+      }
+      long[] masks = new long[maxLines + 1];
+      int numWeights = 0;
+      for (int row = 0; row < rows; row++) {
+         for (int col = 0; col < columns; col++) {
+            int n = lines.numLines(row, col);
+            if (masks[n] == 0) {
+               numWeights++;
+            }
+            masks[n] |= this.board.cell(row, col);
+         }
+      }
+      this.weightMasks = new long[numWeights];
+      this.weights = new int[numWeights];
+      int w = 0;
+      for (int n = 0; n <= maxLines; n++) {
+         if (masks[n] != 0) {
+            this.weightMasks[w] = masks[n];
+            this.weights[w] = n;
+            w++;
+         }
+      }
+   }
+
+   /**
+    * Searches the given position with iterative deepening.
+    *
+    * @Precondition: the player with the given id is to move and there is at
+    *                least one available location; otherwise,
+    *                   throws an IllegalArgumentException
+    * @param position   the position to search (it is not changed)
+    * @param id         the id of the player to move
+    * @param time       the clock of this move, already started
+    * @return  the column to place a disc
+    */
+   public int bestMove(Bitboard position, int id, TimeManager time) {
+      this.board.copyFrom(position);
+      this.nodes = 0;
+      this.cutoffs = 0;
+      this.firstMoveCutoffs = 0;
+      this.ordering.newSearch();
+      this.time = time;
+      this.aborted = false;
+      this.completedDepth = 0;
+      long moves = this.board.legalMoves();
+      if (moves == 0) {
+         throw new IllegalArgumentException();
+      }
+      int best = this.firstColumn(moves);
+      this.bestScore = 0;
+      long wins = this.board.winningCells(id) & moves;
+      if (wins != 0) {
+         this.bestScore = WIN_SCORE;
+         return this.firstColumn(wins);
+      }
+      long candidates = this.candidateMoves(id);
+      if ((candidates & (candidates - 1)) == 0) {
+         //zero or one move is worth playing, so there is nothing to search
+         return candidates == 0 ? best : this.firstColumn(candidates);
+      }
+      int maxDepth = Long.bitCount(this.board.freeMask());
+      if (this.maxDepth > 0) {
+         maxDepth = Math.min(maxDepth, this.maxDepth);
+      }
+      for (int depth = 1 + this.depthOffset; depth <= maxDepth; depth++) {
+         int column = this.searchRoot(depth, id);
+         if (this.aborted) {
+            break;
+         }
+         boolean unstable = depth > 1 && column != best;
+         best = column;
+         this.completedDepth = depth;
+         if (Math.abs(this.bestScore) >= WIN_BOUND) {
+            break;//a forced result will not change with more depth
+         }
+         if (!time.shouldDeepen(unstable)) {
+            break;
+         }
+      }
+      return best;
+   }
+
+   private int searchRoot(int depth, int id) {
+      long moves = this.candidateMoves(id);
+      int alpha = -WIN_SCORE;
+      int best = this.firstColumn(this.board.legalMoves());
+      long hash = this.board.canonicalHash();
+      boolean mirrored = this.board.hashIsMirrored();
+      long entry = this.table.probe(hash);
+      int first = entry == 0 ? TranspositionTable.NO_MOVE :
+            TranspositionTable.mirrorMove(TranspositionTable.move(entry),
+            this.board, mirrored);
+      int count = this.orderMoves(moves, first, id, 0);
+      for (int i = 0; i < count; i++) {
+         int col = this.moves[0][i];
+         this.board.play(col, id);
+         int score = -this.negamax(depth - 1, -WIN_SCORE, -alpha, 3 - id, 1);
+         this.board.undo(col);
+         if (this.aborted) {
+            return best;
+         }
+         if (score > alpha) {
+            alpha = score;
+            best = col;
+         }
+      }
+      this.bestScore = alpha;
+      this.table.store(hash, depth, alpha, TranspositionTable.EXACT,
+            TranspositionTable.mirrorMove(best, this.board, mirrored));
+      return best;
+   }
+
+   private int negamax(int depth, int alpha, int beta, int id, int ply) {
+      this.nodes++;
+      if ((this.nodes & CLOCK_INTERVAL) == 0 && this.time.hardExpired()) {
+         this.aborted = true;
+      }
+      if (this.aborted) {
+         return 0;
+      }
+      long legal = this.board.legalMoves();
+      if (legal == 0) {
+         return 0;//the field is full: a draw
+      }
+      //1. if you can win, win
+      if ((this.board.winningCells(id) & legal) != 0) {
+         return WIN_SCORE - ply;
+      }
+      long moves = this.candidateMoves(id);
+      if (moves == 0) {
+         //every move lets the opponent win next turn
+         return -(WIN_SCORE - ply - 1);
+      }
+      if (depth == 0) {
+         return this.evaluate(id);
+      }
+      //a position and its mirror image share an entry
+      long hash = this.board.canonicalHash();
+      boolean mirrored = this.board.hashIsMirrored();
+      long entry = this.table.probe(hash);
+      int first = TranspositionTable.NO_MOVE;
+      if (entry != 0) {
+         first = TranspositionTable.mirrorMove(TranspositionTable.move(entry),
+               this.board, mirrored);
+         if (TranspositionTable.depth(entry) >= depth) {
+            int score = fromTable(TranspositionTable.score(entry), ply);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.EXACT ||
+                  (bound == TranspositionTable.LOWER && score >= beta) ||
+                  (bound == TranspositionTable.UPPER && score <= alpha)) {
+               return score;
+            }
+         }
+      }
+      int alphaOrig = alpha;
+      int best = TranspositionTable.NO_MOVE;
+      int count = this.orderMoves(moves, first, id, ply);
+      for (int i = 0; i < count; i++) {
+         int col = this.moves[ply][i];
+         this.board.play(col, id);
+         int score = -this.negamax(depth - 1, -beta, -alpha, 3 - id, ply + 1);
+         this.board.undo(col);
+         if (score > alpha) {
+            alpha = score;
+            best = col;
+            if (alpha >= beta) {
+               if (!this.aborted) {
+                  this.cutoff(id, ply, col, moves, depth, i);
+               }
+               break;
+            }
+         }
+      }
+      if (!this.aborted) {
+         int bound = alpha >= beta ? TranspositionTable.LOWER :
+               alpha > alphaOrig ? TranspositionTable.EXACT :
+               TranspositionTable.UPPER;
+         this.table.store(hash, depth, toTable(alpha, ply), bound,
+               TranspositionTable.mirrorMove(best, this.board, mirrored));
+      }
+      return alpha;
+   }
+
+   /**
+    * Puts the moves of a ply in the order they are searched (see the top of
+    *    this class).
+    *
+    * @param moves   the available locations worth searching
+    * @param first   the table's move, or NO_MOVE
+    * @param id      the id of the player to move
+    * @param ply     the ply of the position
+    * @return  the number of moves
+    */
+   private int orderMoves(long moves, int first, int id, int ply) {
+      int[] sorted = this.moves[ply];
+      int[] keys = this.moveKeys[ply];
+      int count = 0;
+      for (int col : this.order) {
+         long location = moves & this.board.columnMask(col);
+         if (location == 0) {
+            continue;
+         }
+         int key;
+         if (col == first) {
+            key = Integer.MAX_VALUE;
+         } else {
+            int cell = Long.numberOfTrailingZeros(location);
+            this.board.play(col, id);
+            int made = Long.bitCount(this.board.winningCells(id) &
+                  this.board.freeMask());
+            this.board.undo(col);
+            key = made << THREAT_SHIFT | this.ordering.history(id, cell);
+            for (int k = 0; k < MoveOrdering.KILLERS; k++) {
+               if (cell == this.ordering.killer(ply, k)) {
+                  key |= (MoveOrdering.KILLERS - k) << KILLER_SHIFT;
+                  break;
+               }
+            }
+         }
+         //insertion sort: the order is already center first, so moves with
+         //the same key stay in that order
+         int i = count++;
+         while (i > 0 && keys[i - 1] < key) {
+            sorted[i] = sorted[i - 1];
+            keys[i] = keys[i - 1];
+            i--;
+         }
+         sorted[i] = col;
+         keys[i] = key;
+      }
+      return count;
+   }
+
+   /**
+    * Counts a cutoff and tells the MoveOrdering which move caused it.
+    *
+    * @param i       where the move was in the order it was searched
+    */
+   private void cutoff(int id, int ply, int col, long moves, int depth,
+         int i) {
+      this.cutoffs++;
+      if (i == 0) {
+         this.firstMoveCutoffs++;
+      }
+      int cell = Long.numberOfTrailingZeros(moves &
+            this.board.columnMask(col));
+      this.ordering.cutoff(id, ply, cell, depth);
+   }
+
+   /**
+    * Wins and losses are stored counting plies from the stored position
+    *    rather than from the root, so they stay right wherever the position
+    *    is reached from.
+    */
+   private static int toTable(int score, int ply) {
+      if (score >= WIN_BOUND) {
+         return score + ply;
+      } else if (score <= -WIN_BOUND) {
+         return score - ply;
+      }
+      return score;
+   }
+
+   private static int fromTable(int score, int ply) {
+      if (score >= WIN_BOUND) {
+         return score - ply;
+      } else if (score <= -WIN_BOUND) {
+         return score + ply;
+      }
+      return score;
+   }
+
+   /**
+    * The available locations that are worth searching for the player to
+    *    move, following rules 2 and 3 at the top of this class.
+    *
+    * @param id   the id of the player to move
+    * @return  the available locations worth playing; 0 if every one of them
+    *             loses to the opponent's next move
+    */
+   private long candidateMoves(int id) {
+      long legal = this.board.legalMoves();
+      long oppWins = this.board.winningCells(3 - id);
+      long forced = oppWins & legal;
+      if (forced != 0) {
+         if ((forced & (forced - 1)) != 0) {
+            return 0;//two wins for the opponent cannot both be blocked
+         }
+         legal = forced;
+      }
+      return legal & ~(oppWins >>> 1);
+   }
+
+   /**
+    * Scores a position that is not searched any deeper (rule 4 at the top
+    *    of this class).
+    *
+    * @param id   the id of the player to move
+    * @return  the score of the position for that player
+    */
+   private int evaluate(int id) {
+      return this.evaluatePlayer(id) - this.evaluatePlayer(3 - id);
+   }
+
+   private int evaluatePlayer(int player) {
+      long threats = this.board.winningCells(player);
+      //player 1 wants threats in odd rows, player 2 in even rows
+      long goodRows = player == 1 ? this.board.oddRows() :
+            this.board.evenRows();
+      int score = STACK_TRAP_WEIGHT *
+            Long.bitCount(this.board.stackTraps(player));
+      score += GOOD_THREAT_WEIGHT * Long.bitCount(threats & goodRows);
+      score += THREAT_WEIGHT * Long.bitCount(threats & ~goodRows);
+      long discs = this.board.discs(player);
+      for (int i = 0; i < this.weightMasks.length; i++) {
+         score += this.weights[i] *
+               Long.bitCount(discs & this.weightMasks[i]);
+      }
+      return score;
+   }
+
+   private int firstColumn(long moves) {
+      for (int i = 0; i < this.order.length; i++) {
+         if ((moves & this.board.columnMask(this.order[i])) != 0) {
+            return this.order[i];
+         }
+      }
+      return -1;
+   }
+
+   /**
+    * @Postcondition: the move ordering remembers nothing from earlier
+    *                 searches (the table is left as it is)
+    */
+   public void clear() {
+      this.ordering.clear();
+   }
+
+   /**
+    * Makes every iteration of the search go deeper than usual.
+    *    Used by ParallelSearch, so that its threads do not all search the
+    *    same depth at the same time.
+    *
+    * @param depthOffset   0 to search normally
+    */
+   public void setDepthOffset(int depthOffset) {
+      this.depthOffset = depthOffset;
+   }
+
+   /**
+    * Stops every search at the given depth, however much time is left, so
+    *    that searches can be compared by the nodes they take.
+    *
+    * @param maxDepth   0 to search for as long as there is time
+    */
+   public void setMaxDepth(int maxDepth) {
+      this.maxDepth = maxDepth;
+   }
+
+   /**
+    * @param i    0 to columns - 1
+    * @return  the i-th column in the order columns are searched
+    */
+   public int orderedColumn(int i) {
+      return this.order[i];
+   }
+
+   /**
+    * @return  the number of positions looked at by the last search
+    */
+   public long getNodes() {
+      return this.nodes;
+   }
+
+   /**
+    * @return  the number of positions of the last search whose search was
+    *             cut off (a move scored at least beta)
+    */
+   public long getCutoffs() {
+      return this.cutoffs;
+   }
+
+   /**
+    * @return  the number of positions of the last search that were cut off
+    *             by the first move searched; the closer to getCutoffs, the
+    *             better the moves are ordered
+    */
+   public long getFirstMoveCutoffs() {
+      return this.firstMoveCutoffs;
+   }
+
+   /**
+    * @return  the depth of the deepest search that finished last time
+    */
+   public int getCompletedDepth() {
+      return this.completedDepth;
+   }
+
+   /**
+    * @return  the score of the deepest search that finished last time
+    */
+   public int getBestScore() {
+      return this.bestScore;
+   }
+}
@@ -0,0 +1,115 @@
+package bot;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * OpeningBook class
+ *
+ * The best moves of the first plies of the game, worked out ahead of time by
+ *    OpeningBookGenerator.
+ *
+ * The book is a binary file:
+ *    int   MAGIC
+ *    int   rows
+ *    int   columns
+ *    int   count: the number of positions
+ *    long  the canonical key (Bitboard.canonicalKey()) of each position,
+ *             sorted from smallest to largest
+ *    byte  the best column of each position, in the same order, as it is in
+ *             the position the key belongs to
+ * A position and its mirror image share an entry, so the book holds about
+ *    half as many positions as there are; a lookup of a position whose
+ *    canonical key is its mirror image's mirrors the move it finds.
+ * Books are of the standard game (lines of four), of any size.
+ * The file is memory-mapped instead of read, so opening even a large book
+ *    costs next to nothing; the operating system only pages in the parts a
+ *    lookup touches. A lookup is a binary search of the keys.
+ * Lookups only read the file, so one book can be shared by any number of
+ *    bots on any number of threads (see BotServer).
+ *
+ * @version 10/16/26
+ */
+public class OpeningBook {
+
+   public static final int MAGIC = 0x4334424D;//"C4BM"
+   //bytes before the first key
+   public static final int HEADER = 4 * 4;
+
+   private final MappedByteBuffer buffer;
+   private final int rows;
+   private final int columns;
+   private final int count;
+
+   /**
+    * @Precondition: the file is a book made by OpeningBookGenerator;
+    *                otherwise,
+    *                   throws an IOException
+    * @param file
+    * @throws IOException
+    */
+   public OpeningBook(File file) throws IOException {
+      RandomAccessFile in = new RandomAccessFile(file, "r");
+      try {
+         FileChannel channel = in.getChannel();
+         this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+               channel.size());
+      } finally {
+         in.close();//the mapping stays valid after the file is closed
+      }
+      int magic = this.buffer.capacity() < HEADER ? 0 :
+            this.buffer.getInt(0);
+      if (magic != MAGIC) {
+         throw new IOException("not an opening book: " + file);
+      }
+      this.rows = this.buffer.getInt(4);
+      this.columns = this.buffer.getInt(8);
+      this.count = this.buffer.getInt(12);
+      if (this.count < 0 ||
+            this.buffer.capacity() < HEADER + 9L * this.count) {
+         throw new IOException("opening book is cut short: " + file);
+      }
+   }
+
+   /**
+    * @param board   the position to look up
+    * @return  the column the book plays in this position, or
+    *          -1 if the position is not in the book (or the board is of a
+    *             different size or game)
+    */
+   public int lookup(Bitboard board) {
+      if (board.rows() != this.rows || board.columns() != this.columns ||
+            board.connect() != WinningLines.STANDARD_LENGTH) {
+         return -1;
+      }
+      long key = board.key();
+      long mirrorKey = board.mirrorKey();
+      boolean mirrored = mirrorKey < key;
+      key = Math.min(key, mirrorKey);
+      int low = 0;
+      int high = this.count - 1;
+      while (low <= high) {
+         int middle = (low + high) >>> 1;
+         long found = this.buffer.getLong(HEADER + 8 * middle);
+         if (found < key) {
+            low = middle + 1;
+         } else if (found > key) {
+            high = middle - 1;
+         } else {
+            int move = this.buffer.get(HEADER + 8 * this.count + middle);
+            return mirrored ? board.mirrorColumn(move) : move;
+         }
+      }
+      return -1;
+   }
+
+   /**
+    * @return  the number of positions in the book
+    */
+   public int size() {
+      return this.count;
+   }
+}
@@ -0,0 +1,134 @@
+package bot;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * OpeningBookGenerator class
+ *
+ * Builds an OpeningBook offline:
+ *    1. goes through every position that can come up in the first plies of a
+ *       game (positions reached through different orders of moves count
+ *       once, so do mirror images, and games that are already over are left
+ *       out),
+ *    2. searches each of them with Negamax for a fixed time, and
+ *    3. writes the keys and best columns to a file in the format described in
+ *       OpeningBook.
+ *
+ * Usage: java bot.OpeningBookGenerator <file> <plies> <millis per position>
+ *    e.g. java bot.OpeningBookGenerator book.bin 4 500
+ *    searches 719 positions in about 4 minutes. Every ply adds about four
+ *    times as many positions (11094 at 6 plies, 129498 at 8), and each one
+ *    takes up to the given time.
+ *
+ * @version 10/16/26
+ */
+public class OpeningBookGenerator {
+
+   private final Bitboard board;
+   private final Negamax search;
+   private final TimeManager time;
+   //the best column of every position found so far, by canonical key (the
+   //column is as it is in the position of that key)
+   private final Map<Long,Integer> moves;
+   private long millis;
+
+   public OpeningBookGenerator(int rows, int columns) {
+      this.board = new Bitboard(rows, columns);
+      this.search = new Negamax(rows, columns, WinningLines.STANDARD_LENGTH,
+            new TranspositionTable(SearchBot.DEFAULT_TABLE_MEGABYTES));
+      this.time = new TimeManager();
+      this.moves = new HashMap<Long,Integer>();
+   }
+
+   /**
+    * Searches every position and writes the book.
+    *
+    * @param file       where to write the book
+    * @param plies      the number of discs the positions may have (at most)
+    * @param millis     how long to search each position
+    * @throws IOException
+    */
+   public void generate(String file, int plies, long millis)
+         throws IOException {
+      this.moves.clear();
+      this.board.clear();
+      this.millis = millis;
+      this.addPositions(plies, 1);
+      long[] keys = new long[this.moves.size()];
+      int i = 0;
+      for (Long key : this.moves.keySet()) {
+         keys[i++] = key;
+      }
+      Arrays.sort(keys);
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+            new FileOutputStream(file)));
+      try {
+         out.writeInt(OpeningBook.MAGIC);
+         out.writeInt(this.board.rows());
+         out.writeInt(this.board.columns());
+         out.writeInt(keys.length);
+         for (long key : keys) {
+            out.writeLong(key);
+         }
+         for (long key : keys) {
+            out.writeByte(this.moves.get(key));
+         }
+      } finally {
+         out.close();
+      }
+   }
+
+   /**
+    * Searches the position on board and every position after it, up to plies
+    *    more discs. A position seen before (or its mirror image) is skipped,
+    *    and so are the positions after it, since they (or their mirror
+    *    images) were found the first time.
+    *
+    * @param plies   how many more discs may be played
+    * @param id      the player to move
+    */
+   private void addPositions(int plies, int id) {
+      long key = this.board.canonicalKey();
+      if (this.moves.containsKey(key)) {
+         return;
+      }
+      this.time.startFixed(this.millis);
+      int move = this.search.bestMove(this.board, id, this.time);
+      if (this.board.keyIsMirrored()) {
+         move = this.board.mirrorColumn(move);
+      }
+      this.moves.put(key, move);
+      if (this.moves.size() % 100 == 0) {
+         System.err.println(this.moves.size() + " positions");
+      }
+      if (plies == 0) {
+         return;
+      }
+      for (int col = 0; col < this.board.columns(); col++) {
+         if (this.board.heightOf(col) < this.board.rows()) {
+            this.board.play(col, id);
+            //the game is over after a win or once the field is full
+            if (!this.board.isWin(id) && this.board.legalMoves() != 0) {
+               this.addPositions(plies - 1, 3 - id);
+            }
+            this.board.undo(col);
+         }
+      }
+   }
+
+   public static void main(String[] args) throws IOException {
+      if (args.length < 3) {
+         System.err.println("usage: java bot.OpeningBookGenerator " +
+               "<file> <plies> <millis per position>");
+         System.exit(1);
+      }
+      new OpeningBookGenerator(6, 7).generate(args[0],
+            Integer.parseInt(args[1]), Long.parseLong(args[2]));
+   }
+}
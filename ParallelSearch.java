@@ -0,0 +1,193 @@
+package bot;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * ParallelSearch class
+ *
+ * Runs Negamax on several threads at once (Lazy SMP).
+ *    Every thread searches the same position with its own Negamax and board,
+ *    and they all share one TranspositionTable. The threads help each other
+ *    through the table: a position one thread has searched is a cutoff or a
+ *    good first move for the others. Half of the helper threads search one
+ *    ply deeper than the main thread so that they get ahead of it.
+ *
+ * Only the main thread's answer is used; the helpers are cancelled as soon as
+ *    it is done.
+ *
+ * With one thread there are no helpers and no thread pool: the search is
+ *    exactly a single Negamax, so it plays the same moves every time.
+ *
+ * @version 10/16/26
+ */
+public class ParallelSearch {
+
+   //helpers search until they are cancelled; this only has to be long enough
+   private static final long HELPER_MILLIS = 24L * 60 * 60 * 1000;
+
+   private final Negamax main;
+   private final Negamax[] helpers;
+   private final TimeManager helperTime;
+   private final ExecutorService pool;
+   private final Future<?>[] running;
+   private long nodes;
+   private long cutoffs;
+   private long firstMoveCutoffs;
+
+   /**
+    * @Precondition: threads is at least 1; otherwise,
+    *                   throws an IllegalArgumentException
+    * @param rows
+    * @param columns
+    * @param connect the number of discs in a line that wins the game
+    * @param table   shared by all the threads
+    * @param threads the number of threads to search with
+    */
+   public ParallelSearch(int rows, int columns, int connect,
+         TranspositionTable table, int threads) {
+      if (threads < 1) {
+         throw new IllegalArgumentException();
+      }
+      this.main = new Negamax(rows, columns, connect, table);
+      this.helpers = new Negamax[threads - 1];
+      for (int i = 0; i < this.helpers.length; i++) {
+         this.helpers[i] = new Negamax(rows, columns, connect, table);
+         this.helpers[i].setDepthOffset(i % 2 == 0 ? 1 : 0);
+      }
+      this.helperTime = new TimeManager();
+      this.running = new Future<?>[this.helpers.length];
+      if (this.helpers.length == 0) {
+         this.pool = null;
+      } else {
+         this.pool = Executors.newFixedThreadPool(this.helpers.length,
+               new ThreadFactory() {
+                  public Thread newThread(Runnable task) {
+                     Thread thread = new Thread(task, "search-helper");
+                     thread.setDaemon(true);
+                     return thread;
+                  }
+               });
+      }
+   }
+
+   /**
+    * Same as Negamax.bestMove, using every thread.
+    *
+    * @param position   the position to search (it is not changed)
+    * @param id         the id of the player to move
+    * @param time       the clock of this move, already started
+    * @return  the column to place a disc
+    */
+   public int bestMove(final Bitboard position, final int id,
+         TimeManager time) {
+      this.helperTime.clearCancel();
+      this.helperTime.startFixed(HELPER_MILLIS);
+      for (int i = 0; i < this.helpers.length; i++) {
+         final Negamax helper = this.helpers[i];
+         this.running[i] = this.pool.submit(new Runnable() {
+            public void run() {
+               helper.bestMove(position, id, ParallelSearch.this.helperTime);
+            }
+         });
+      }
+      int column = this.main.bestMove(position, id, time);
+      this.helperTime.cancel();
+      this.nodes = this.main.getNodes();
+      this.cutoffs = this.main.getCutoffs();
+      this.firstMoveCutoffs = this.main.getFirstMoveCutoffs();
+      for (int i = 0; i < this.helpers.length; i++) {
+         this.waitFor(this.running[i]);
+         this.nodes += this.helpers[i].getNodes();
+         this.cutoffs += this.helpers[i].getCutoffs();
+         this.firstMoveCutoffs += this.helpers[i].getFirstMoveCutoffs();
+      }
+      return column;
+   }
+
+   /**
+    * @Postcondition: the move ordering of every thread remembers nothing
+    *                 from earlier searches (the table is left as it is)
+    */
+   public void clear() {
+      this.main.clear();
+      for (Negamax helper : this.helpers) {
+         helper.clear();
+      }
+   }
+
+   /**
+    * @Postcondition: the helper threads (if any) are gone; the search must
+    *                 not be used again
+    */
+   public void close() {
+      if (this.pool != null) {
+         this.pool.shutdownNow();
+      }
+   }
+
+   private void waitFor(Future<?> helper) {
+      boolean interrupted = false;
+      while (true) {
+         try {
+            helper.get();
+            break;
+         } catch (InterruptedException e) {
+            interrupted = true;
+         } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+         }
+      }
+      if (interrupted) {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   /**
+    * @return  the number of threads searching
+    */
+   public int getThreads() {
+      return this.helpers.length + 1;
+   }
+
+   /**
+    * @return  the number of positions looked at by all threads in the last
+    *             search
+    */
+   public long getNodes() {
+      return this.nodes;
+   }
+
+   /**
+    * @return  the number of positions all threads cut off in the last search
+    *             (see Negamax.getCutoffs)
+    */
+   public long getCutoffs() {
+      return this.cutoffs;
+   }
+
+   /**
+    * @return  the number of those that were cut off by the first move
+    *             searched
+    */
+   public long getFirstMoveCutoffs() {
+      return this.firstMoveCutoffs;
+   }
+
+   /**
+    * @return  the depth of the deepest search the main thread finished
+    */
+   public int getCompletedDepth() {
+      return this.main.getCompletedDepth();
+   }
+
+   /**
+    * @return  the score of the deepest search the main thread finished
+    */
+   public int getBestScore() {
+      return this.main.getBestScore();
+   }
+}
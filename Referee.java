@@ -0,0 +1,552 @@
+package bot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Referee class
+ *
+ * Plays bots against each other without the game platform.
+ *    The referee stands in for the engine: each bot gets a BotParser of its
+ *    own and is sent the same settings, update and action commands the
+ *    engine would send, and its place_disc answers are checked and played.
+ *
+ * Some things to note when interacting with this class.
+ *    Games are played in pairs. Both games of a pair start with the same
+ *       random opening (openingPlies discs placed by the referee) and the
+ *       bots swap sides in the second one, so neither bot is favored by the
+ *       opening or by moving first. The openings come from the seed, so the
+ *       same seed plays the same openings.
+ *    The time bank works like the engine's: time_per_move is added before
+ *       every move (up to timebank) and the time a move takes is taken off.
+ *       A bot whose bank runs out loses the game on time.
+ *    A bot that answers with anything but a legal column (or throws) loses
+ *       the game.
+ *    Games are played on a pool of threads, each game on one thread, so
+ *       bots that think on the opponent's time (see SearchBot) compete with
+ *       the other games for the CPU.
+ *
+ * Usage: java bot.Referee <bot> <bot> [games=N] [threads=N] [seed=N]
+ *          [opening=N] [timebank=N] [time_per_move=N] [rows=N] [columns=N]
+ *          [connect=N]
+ *    where a bot is trap, search, ponder or mcts (see newBot). The field is
+ *    6 x 7 and lines of four win unless told otherwise.
+ *
+ * @version 10/16/26
+ */
+public class Referee {
+
+   /**
+    * Makes a new bot for every game, so games never share a bot.
+    */
+   public interface BotFactory {
+      BotStarter newBot(int rows, int columns, int connect);
+   }
+
+   //how a game ended
+   public static final int CONNECTED = 0;
+   public static final int DRAW = 1;
+   public static final int TIMEOUT = 2;
+   public static final int ILLEGAL = 3;
+
+   private final int rows;
+   private final int columns;
+   private final int connect;
+   private int timebank = 10000;
+   private int timePerMove = 500;
+   private int openingPlies = 2;
+   private long seed = 1;
+
+   public Referee(int rows, int columns) {
+      this(rows, columns, WinningLines.STANDARD_LENGTH);
+   }
+
+   /**
+    * @param rows
+    * @param columns
+    * @param connect the number of discs in a line that wins the game
+    */
+   public Referee(int rows, int columns, int connect) {
+      this.rows = rows;
+      this.columns = columns;
+      this.connect = connect;
+   }
+
+   /**
+    * @param timebank      milliseconds in the time bank at the start (and
+    *                         the most it can hold)
+    * @param timePerMove   milliseconds added to the time bank every move
+    */
+   public void setTime(int timebank, int timePerMove) {
+      this.timebank = timebank;
+      this.timePerMove = timePerMove;
+   }
+
+   /**
+    * @param openingPlies  the number of random discs each game starts with
+    */
+   public void setOpeningPlies(int openingPlies) {
+      this.openingPlies = openingPlies;
+   }
+
+   /**
+    * @param seed where the random openings come from
+    */
+   public void setSeed(long seed) {
+      this.seed = seed;
+   }
+
+   /**
+    * Plays games between two bots.
+    *
+    * @param first      the first bot
+    * @param second     the second bot
+    * @param games      the number of games (rounded up to a whole number of
+    *                      pairs)
+    * @param threads    the number of games played at the same time
+    * @return  the results of both bots
+    * @throws InterruptedException
+    */
+   public Report play(final BotFactory first, final BotFactory second,
+         int games, int threads) throws InterruptedException {
+      int pairs = (games + 1) / 2;
+      ExecutorService pool = Executors.newFixedThreadPool(threads);
+      List<Future<Game>> futures = new ArrayList<Future<Game>>();
+      try {
+         for (int i = 0; i < pairs * 2; i++) {
+            final boolean swapped = i % 2 == 1;
+            final long opening = this.seed * 1000003L + i / 2;
+            futures.add(pool.submit(new Callable<Game>() {
+               public Game call() {
+                  return swapped ? playGame(second, first, opening) :
+                        playGame(first, second, opening);
+               }
+            }));
+         }
+         Report report = new Report();
+         for (int i = 0; i < futures.size(); i++) {
+            try {
+               report.add(futures.get(i).get(), i % 2 == 1);
+            } catch (ExecutionException e) {
+               throw new IllegalStateException(e.getCause());
+            }
+         }
+         return report;
+      } finally {
+         pool.shutdownNow();
+      }
+   }
+
+   /**
+    * Plays one game on this thread.
+    *
+    * @param player1    makes the bot that plays with the id of 1
+    * @param player2    makes the bot that plays with the id of 2
+    * @param opening    the seed of the random opening
+    * @return  how the game went
+    */
+   public Game playGame(BotFactory player1, BotFactory player2, long opening) {
+      Bitboard board = new Bitboard(this.rows, this.columns, this.connect);
+      Random random = new Random(opening);
+      int id = 1;
+      for (int i = 0; i < this.openingPlies; i++) {
+         long moves = board.legalMoves();
+         long move;
+         do {//only openings that leave the game open
+            move = this.randomMove(moves, random);
+            board.play(board.column(Long.numberOfTrailingZeros(move)), id);
+            if (!board.isWin(id) && board.legalMoves() != 0) {
+               break;
+            }
+            board.undo(board.column(Long.numberOfTrailingZeros(move)));
+            moves &= ~move;
+         } while (moves != 0);
+         id = 3 - id;
+      }
+      Seat[] seats = {null,
+            new Seat(player1.newBot(this.rows, this.columns, this.connect),
+                  1),
+            new Seat(player2.newBot(this.rows, this.columns, this.connect),
+                  2)};
+      Game game = new Game();
+      try {
+         for (int round = 1; ; round++) {
+            String field = board.toField();
+            for (int p = 1; p <= 2; p++) {
+               seats[p].send("update game round " + round);
+               seats[p].send("update game field " + field);
+            }
+            Seat seat = seats[id];
+            seat.bank = Math.min(seat.bank + this.timePerMove, this.timebank);
+            long start = System.nanoTime();
+            String answer;
+            try {
+               answer = seat.ask("action move " + seat.bank);
+            } catch (RuntimeException e) {
+               answer = null;
+            }
+            long micros = (System.nanoTime() - start) / 1000;
+            game.addLatency(id, micros);
+            seat.bank -= (int) (micros / 1000);
+            if (seat.bank < 0) {
+               return game.end(3 - id, TIMEOUT, board);
+            }
+            int col = this.column(answer);
+            if (col < 0 || col >= this.columns ||
+                  board.heightOf(col) >= this.rows) {
+               return game.end(3 - id, ILLEGAL, board);
+            }
+            board.play(col, id);
+            if (board.isWin(id)) {
+               return game.end(id, CONNECTED, board);
+            }
+            if (board.legalMoves() == 0) {
+               return game.end(0, DRAW, board);
+            }
+            id = 3 - id;
+         }
+      } finally {
+         seats[1].bot.stopPondering();
+         seats[2].bot.stopPondering();
+         seats[1].bot.gameOver();
+         seats[2].bot.gameOver();
+         //a bot plays one game
+         seats[1].bot.close();
+         seats[2].bot.close();
+      }
+   }
+
+   private long randomMove(long moves, Random random) {
+      int skip = random.nextInt(Long.bitCount(moves));
+      for (int i = 0; i < skip; i++) {
+         moves &= moves - 1;
+      }
+      return Long.lowestOneBit(moves);
+   }
+
+   /**
+    * @param answer  what a bot answered to "action move"
+    * @return  the column of a place_disc answer; otherwise, -1
+    */
+   private int column(String answer) {
+      if (answer == null || !answer.startsWith("place_disc ")) {
+         return -1;
+      }
+      try {
+         return Integer.parseInt(
+               answer.substring("place_disc ".length()).trim());
+      } catch (NumberFormatException e) {
+         return -1;
+      }
+   }
+
+   /**
+    * A bot in a game, with the parser the referee talks to it through.
+    */
+   private class Seat {
+      final BotStarter bot;
+      final BotParser parser;
+      final ByteArrayOutputStream answers;
+      int bank;
+
+      Seat(BotStarter bot, int id) {
+         this.bot = bot;
+         this.answers = new ByteArrayOutputStream();
+         //commands are handed to the parser one at a time, never read
+         this.parser = new BotParser(bot, new ByteArrayInputStream(new byte[0]),
+               new PrintStream(this.answers, true));
+         this.bank = timebank;
+         this.send("settings timebank " + timebank);
+         this.send("settings time_per_move " + timePerMove);
+         this.send("settings player_names player1,player2");
+         this.send("settings your_bot player" + id);
+         this.send("settings your_botid " + id);
+         this.send("settings field_columns " + columns);
+         this.send("settings field_rows " + rows);
+      }
+
+      void send(String command) {
+         this.parser.handle(command);
+         this.answers.reset();//only answers to action commands count
+      }
+
+      String ask(String command) {
+         this.parser.handle(command);
+         String answer = this.answers.toString().trim();
+         this.answers.reset();
+         return answer;
+      }
+   }
+
+   /**
+    * How one game went.
+    */
+   public static class Game {
+      //0 for a draw
+      private int winner;
+      private int reason;
+      private String field;
+      //microseconds each move of each player took, by id
+      private final long[][] latencies = {null, new long[8], new long[8]};
+      private final int[] moves = new int[3];
+
+      private void addLatency(int id, long micros) {
+         if (this.moves[id] == this.latencies[id].length) {
+            this.latencies[id] = Arrays.copyOf(this.latencies[id],
+                  this.moves[id] * 2);
+         }
+         this.latencies[id][this.moves[id]++] = micros;
+      }
+
+      private Game end(int winner, int reason, Bitboard board) {
+         this.winner = winner;
+         this.reason = reason;
+         this.field = board.toField();
+         return this;
+      }
+
+      /**
+       * @return  the id of the winner, or 0 for a draw
+       */
+      public int getWinner() {
+         return this.winner;
+      }
+
+      /**
+       * @return  CONNECTED, DRAW, TIMEOUT or ILLEGAL
+       */
+      public int getReason() {
+         return this.reason;
+      }
+
+      /**
+       * @return  the field at the end of the game, in the engine's format
+       */
+      public String getField() {
+         return this.field;
+      }
+
+      /**
+       * @param id
+       * @return  the microseconds each move of the player took
+       */
+      public long[] getLatencies(int id) {
+         return Arrays.copyOf(this.latencies[id], this.moves[id]);
+      }
+   }
+
+   /**
+    * The results of the first and second bot over all games.
+    *    Index 0 is the first bot, index 1 the second.
+    */
+   public static class Report {
+      private final int[] wins = new int[2];
+      private final int[] timeouts = new int[2];
+      private final int[] illegal = new int[2];
+      private int draws;
+      private int games;
+      private final long[][] latencies = {new long[64], new long[64]};
+      private final int[] moves = new int[2];
+
+      private void add(Game game, boolean swapped) {
+         this.games++;
+         //the bot that played with the id of 1
+         int first = swapped ? 1 : 0;
+         for (int id = 1; id <= 2; id++) {
+            int bot = id == 1 ? first : 1 - first;
+            for (long micros : game.getLatencies(id)) {
+               if (this.moves[bot] == this.latencies[bot].length) {
+                  this.latencies[bot] = Arrays.copyOf(this.latencies[bot],
+                        this.moves[bot] * 2);
+               }
+               this.latencies[bot][this.moves[bot]++] = micros;
+            }
+         }
+         if (game.getWinner() == 0) {
+            this.draws++;
+            return;
+         }
+         int winner = game.getWinner() == 1 ? first : 1 - first;
+         this.wins[winner]++;
+         if (game.getReason() == TIMEOUT) {
+            this.timeouts[1 - winner]++;
+         } else if (game.getReason() == ILLEGAL) {
+            this.illegal[1 - winner]++;
+         }
+      }
+
+      public int getGames() {
+         return this.games;
+      }
+
+      public int getDraws() {
+         return this.draws;
+      }
+
+      public int getWins(int bot) {
+         return this.wins[bot];
+      }
+
+      /**
+       * @param bot  0 or 1
+       * @return  the games lost because the time bank ran out
+       */
+      public int getTimeouts(int bot) {
+         return this.timeouts[bot];
+      }
+
+      /**
+       * @param bot  0 or 1
+       * @return  the games lost to an illegal answer (or an exception)
+       */
+      public int getIllegalMoves(int bot) {
+         return this.illegal[bot];
+      }
+
+      /**
+       * @param bot  0 or 1
+       * @return  the score of the bot, from 0.0 to 1.0: a win counts 1 and a
+       *             draw half
+       */
+      public double getScore(int bot) {
+         return this.games == 0 ? 0 :
+               (this.wins[bot] + this.draws / 2.0) / this.games;
+      }
+
+      /**
+       * @param bot        0 or 1
+       * @param percentile from 0.0 to 100.0
+       * @return  the microseconds within which that percentage of the bot's
+       *             moves were made
+       */
+      public long getLatency(int bot, double percentile) {
+         if (this.moves[bot] == 0) {
+            return 0;
+         }
+         long[] sorted = Arrays.copyOf(this.latencies[bot], this.moves[bot]);
+         Arrays.sort(sorted);
+         int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+         return sorted[Math.max(rank - 1, 0)];
+      }
+
+      /**
+       * @param names   the names of the first and second bot
+       * @return  a table of the results
+       */
+      public String format(String[] names) {
+         StringBuilder s = new StringBuilder();
+         s.append(String.format("%d games, %d draws%n", this.games,
+               this.draws));
+         s.append(String.format("%-10s %6s %6s %6s %8s %7s %9s %9s %9s %9s%n",
+               "bot", "wins", "score", "time", "illegal", "moves",
+               "p50 ms", "p90 ms", "p99 ms", "max ms"));
+         for (int bot = 0; bot < 2; bot++) {
+            s.append(String.format(
+                  "%-10s %6d %6.3f %6d %8d %7d %9.2f %9.2f %9.2f %9.2f%n",
+                  names[bot], this.wins[bot], this.getScore(bot),
+                  this.timeouts[bot], this.illegal[bot], this.moves[bot],
+                  this.getLatency(bot, 50) / 1000.0,
+                  this.getLatency(bot, 90) / 1000.0,
+                  this.getLatency(bot, 99) / 1000.0,
+                  this.getLatency(bot, 100) / 1000.0));
+         }
+         return s.toString();
+      }
+   }
+
+   /**
+    * @param name trap:   TrapBot
+    *             search: SearchBot
+    *             ponder: SearchBot that thinks on the opponent's time
+    *             mcts:   MctsBot
+    * @return  a factory of the bot with the given name
+    */
+   public static BotFactory newBot(final String name) {
+      if (name.equals("trap")) {
+         return new BotFactory() {
+            public BotStarter newBot(int rows, int columns, int connect) {
+               return new TrapBot(rows, columns, connect);
+            }
+         };
+      } else if (name.equals("search") || name.equals("ponder")) {
+         return new BotFactory() {
+            public BotStarter newBot(int rows, int columns, int connect) {
+               SearchBot bot = new SearchBot(rows, columns, connect,
+                     SearchBot.DEFAULT_TABLE_MEGABYTES, 1);
+               bot.setPondering(name.equals("ponder"));
+               return bot;
+            }
+         };
+      } else if (name.equals("mcts")) {
+         return new BotFactory() {
+            public BotStarter newBot(int rows, int columns, int connect) {
+               return new MctsBot(rows, columns, connect,
+                     MonteCarloSearch.DEFAULT_NODES, 1);
+            }
+         };
+      }
+      throw new IllegalArgumentException("unknown bot: " + name);
+   }
+
+   public static void main(String[] args) throws InterruptedException {
+      List<String> names = new ArrayList<String>();
+      int games = 100;
+      int threads = Runtime.getRuntime().availableProcessors();
+      int rows = 6;
+      int columns = 7;
+      int connect = WinningLines.STANDARD_LENGTH;
+      int timebank = 10000;
+      int timePerMove = 500;
+      long seed = 1;
+      int opening = 2;
+      for (String arg : args) {
+         int split = arg.indexOf('=');
+         String value = arg.substring(split + 1);
+         if (split < 0) {
+            names.add(arg);
+         } else if (arg.startsWith("games=")) {
+            games = Integer.parseInt(value);
+         } else if (arg.startsWith("threads=")) {
+            threads = Integer.parseInt(value);
+         } else if (arg.startsWith("seed=")) {
+            seed = Long.parseLong(value);
+         } else if (arg.startsWith("opening=")) {
+            opening = Integer.parseInt(value);
+         } else if (arg.startsWith("timebank=")) {
+            timebank = Integer.parseInt(value);
+         } else if (arg.startsWith("time_per_move=")) {
+            timePerMove = Integer.parseInt(value);
+         } else if (arg.startsWith("rows=")) {
+            rows = Integer.parseInt(value);
+         } else if (arg.startsWith("columns=")) {
+            columns = Integer.parseInt(value);
+         } else if (arg.startsWith("connect=")) {
+            connect = Integer.parseInt(value);
+         }
+      }
+      if (names.size() != 2) {
+         System.err.println("usage: java bot.Referee <bot> <bot> [games=N] " +
+               "[threads=N] [seed=N] [opening=N] [timebank=N] " +
+               "[time_per_move=N] [rows=N] [columns=N] [connect=N]");
+         System.exit(1);
+      }
+      Referee referee = new Referee(rows, columns, connect);
+      referee.setSeed(seed);
+      referee.setOpeningPlies(opening);
+      referee.setTime(timebank, timePerMove);
+      Report report = referee.play(newBot(names.get(0)), newBot(names.get(1)),
+            games, threads);
+      System.out.print(report.format(
+            names.toArray(new String[names.size()])));
+   }
+}
@@ -0,0 +1,411 @@
+package bot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * ResultCache class
+ *
+ * Remembers the moves a bot chose, from game to game: a tournament comes
+ *    back to the same positions again and again, and a position that was
+ *    worked out once is answered with a lookup instead of a whole makeTurn.
+ *
+ * Some things to note when interacting with this class.
+ *    Positions are keyed by Bitboard.canonicalKey and the id of the player
+ *       to move, so a position and its mirror image share an entry; moves
+ *       are kept as they are in the position of the key and mirrored back
+ *       when needed.
+ *    The cache holds a fixed number of entries in sets of WAYS. A position
+ *       can only go in the set its key picks, and when the set is full the
+ *       entry used least recently is evicted (LRU within the set).
+ *       Nothing is allocated by a lookup or a store.
+ *    Only the moves of a bot that plays the same move in a position every
+ *       time are worth keeping (see canCache): SearchBot and MctsBot play
+ *       what they found in the time they had, and a move found in a hurry
+ *       would be played from the cache for good.
+ *    A cache opened with a file loads the file and, at the end of every
+ *       game (flush), appends the moves that game added to it. Nothing
+ *       already in the file is ever written again, so a game's end costs
+ *       a few bytes. When the file holds more than twice as many moves as
+ *       the cache (when it is opened, or after a flush), it is written
+ *       again with only what the cache holds.
+ *    The file belongs to one bot and one game: opening it for another bot
+ *       or another size of field fails.
+ *    Its methods are synchronized, so bots on different threads (see
+ *       BotServer) can share a cache.
+ *
+ * The file is:
+ *    int   MAGIC
+ *    UTF   the name of the bot (see Referee.newBot)
+ *    int   rows
+ *    int   columns
+ *    int   connect
+ *    then a record for each move, oldest first:
+ *    long  the canonical key of the position
+ *    byte  the id of the player to move
+ *    byte  the column, as it is in the position of the key
+ *    A record that is cut short (a game that ended while its moves were
+ *    being written) is left out, and a later record of the same position
+ *    replaces an earlier one.
+ *
+ * @version 10/16/26
+ */
+public class ResultCache {
+
+   public static final int MAGIC = 0x43345232;//"C4R2"
+   public static final int DEFAULT_CAPACITY = 1 << 18;
+   //entries per set
+   public static final int WAYS = 4;
+   private static final int RECORD_BYTES = 8 + 1 + 1;
+
+   private final String bot;
+   private final int rows;
+   private final int columns;
+   private final int connect;
+   //by entry: the canonical key, the id of the player to move (0 for an
+   //empty entry: the key of the empty field is 0), the column, and when it
+   //was last used
+   private final long[] keys;
+   private final byte[] ids;
+   private final byte[] moves;
+   private final long[] used;
+   private final int setMask;
+   private long clock;
+   //the moves stored since the last flush, to append to the file
+   private long[] pendingKeys = new long[64];
+   private byte[] pendingIds = new byte[64];
+   private byte[] pendingMoves = new byte[64];
+   private int pending;
+   private File file;
+   //the records in the file
+   private long records;
+   private long hits;
+   private long misses;
+
+   /**
+    * @Precondition: capacity is at least WAYS; otherwise,
+    *                   throws an IllegalArgumentException
+    * @param bot        the name of the bot whose moves it holds
+    * @param rows
+    * @param columns
+    * @param connect    the number of discs in a line that wins the game
+    * @param capacity   the most moves to hold; the number of sets is the
+    *                      largest power of two that fits
+    */
+   public ResultCache(String bot, int rows, int columns, int connect,
+         int capacity) {
+      if (capacity < WAYS) {
+         throw new IllegalArgumentException();
+      }
+      this.bot = bot;
+      this.rows = rows;
+      this.columns = columns;
+      this.connect = connect;
+      int sets = Integer.highestOneBit(capacity / WAYS);
+      this.setMask = sets - 1;
+      this.keys = new long[sets * WAYS];
+      this.ids = new byte[sets * WAYS];
+      this.moves = new byte[sets * WAYS];
+      this.used = new long[sets * WAYS];
+   }
+
+   /**
+    * @param bot  the name of a bot (see Referee.newBot)
+    * @return  true if its moves can be cached: it plays the same move in a
+    *             position whatever the clock says
+    */
+   public static boolean canCache(String bot) {
+      return bot.equals("trap");
+   }
+
+   /**
+    * Makes a cache that keeps its moves in the given file, with what the
+    *    file holds already.
+    *
+    * @Precondition: canCache(bot); otherwise, throws an
+    *                   IllegalArgumentException
+    *                if the file exists, it is a result cache of the given
+    *                   bot and size; otherwise, throws an IOException
+    * @param file       where the moves are kept between runs (it is made if
+    *                      it does not exist)
+    * @return  the cache
+    * @throws IOException
+    */
+   public static ResultCache open(File file, String bot, int rows,
+         int columns, int connect, int capacity) throws IOException {
+      if (!canCache(bot)) {
+         throw new IllegalArgumentException("the moves of " + bot +
+               " depend on the clock");
+      }
+      ResultCache cache = new ResultCache(bot, rows, columns, connect,
+            capacity);
+      if (file.exists()) {
+         cache.records = cache.load(file);
+         cache.compactIfLarge(file);
+      }
+      cache.file = file;
+      return cache;
+   }
+
+   /**
+    * @return  the number of records read
+    */
+   private long load(File file) throws IOException {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(
+            new FileInputStream(file)));
+      long records = 0;
+      try {
+         this.readHeader(in, file);
+         while (true) {
+            long key;
+            int id;
+            int move;
+            try {
+               key = in.readLong();
+               id = in.readByte();
+               move = in.readByte();
+            } catch (EOFException e) {
+               break;//the end, or a record that was cut short
+            }
+            if ((id == 1 || id == 2) && move >= 0 &&
+                  move < this.columns) {
+               this.store(key, id, move);
+               records++;
+            }
+         }
+      } finally {
+         in.close();
+      }
+      return records;
+   }
+
+   private void readHeader(DataInputStream in, File file)
+         throws IOException {
+      try {
+         if (in.readInt() != MAGIC) {
+            throw new IOException("not a result cache: " + file);
+         }
+         String bot = in.readUTF();
+         if (!bot.equals(this.bot)) {
+            throw new IOException("a result cache of " + bot + ", not " +
+                  this.bot + ": " + file);
+         }
+         if (in.readInt() != this.rows || in.readInt() != this.columns ||
+               in.readInt() != this.connect) {
+            throw new IOException("a result cache of another game: " + file);
+         }
+      } catch (EOFException e) {
+         throw new IOException("not a result cache: " + file);
+      }
+   }
+
+   /**
+    * Writes the file again with only the moves the cache holds, if it has
+    *    more than twice as many records.
+    */
+   private void compactIfLarge(File file) throws IOException {
+      if (this.records <= 2L * this.keys.length) {
+         return;
+      }
+      File temp = new File(file.getPath() + ".tmp");
+      DataOutputStream out = this.create(temp);
+      long records = 0;
+      try {
+         for (int i = 0; i < this.keys.length; i++) {
+            if (this.ids[i] != 0) {
+               writeRecord(out, this.keys[i], this.ids[i], this.moves[i]);
+               records++;
+            }
+         }
+      } finally {
+         out.close();
+      }
+      if (!temp.renameTo(file)) {
+         file.delete();
+         if (!temp.renameTo(file)) {
+            throw new IOException("could not replace " + file);
+         }
+      }
+      this.records = records;
+   }
+
+   /**
+    * @return  a stream to a new file, with the header written
+    */
+   private DataOutputStream create(File file) throws IOException {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+            new FileOutputStream(file)));
+      out.writeInt(MAGIC);
+      out.writeUTF(this.bot);
+      out.writeInt(this.rows);
+      out.writeInt(this.columns);
+      out.writeInt(this.connect);
+      return out;
+   }
+
+   private static void writeRecord(DataOutputStream out, long key, int id,
+         int move) throws IOException {
+      out.writeLong(key);
+      out.writeByte(id);
+      out.writeByte(move);
+   }
+
+   /**
+    * @param board   the position
+    * @param id      the id of the player to move
+    * @return  the column chosen last time in the position (or its mirror
+    *             image); -1 if it is not in the cache
+    */
+   public synchronized int get(Bitboard board, int id) {
+      long key = board.canonicalKey();
+      int entry = this.find(key, id);
+      if (entry < 0) {
+         this.misses++;
+         return -1;
+      }
+      this.hits++;
+      this.used[entry] = ++this.clock;
+      int move = this.moves[entry];
+      return board.keyIsMirrored() ? board.mirrorColumn(move) : move;
+   }
+
+   /**
+    * Remembers the column chosen in a position; it is written to the file
+    *    by the next flush.
+    *
+    * @param board   the position
+    * @param id      the id of the player to move
+    * @param column  the column chosen
+    */
+   public synchronized void put(Bitboard board, int id, int column) {
+      long key = board.canonicalKey();
+      int move = board.keyIsMirrored() ? board.mirrorColumn(column) : column;
+      int entry = this.find(key, id);
+      if (entry >= 0 && this.moves[entry] == move) {
+         return;//nothing new
+      }
+      this.store(key, id, move);
+      if (this.pending == this.pendingKeys.length) {
+         int length = this.pending * 2;
+         this.pendingKeys = Arrays.copyOf(this.pendingKeys, length);
+         this.pendingIds = Arrays.copyOf(this.pendingIds, length);
+         this.pendingMoves = Arrays.copyOf(this.pendingMoves, length);
+      }
+      this.pendingKeys[this.pending] = key;
+      this.pendingIds[this.pending] = (byte) id;
+      this.pendingMoves[this.pending] = (byte) move;
+      this.pending++;
+   }
+
+   /**
+    * @return  the entry that holds the position, or -1
+    */
+   private int find(long key, int id) {
+      int start = this.set(key);
+      for (int i = start; i < start + WAYS; i++) {
+         if (this.keys[i] == key && this.ids[i] == id) {
+            return i;
+         }
+      }
+      return -1;
+   }
+
+   /**
+    * Puts a move in the entry of its position, an empty entry of its set, or
+    *    the entry of its set used least recently.
+    */
+   private void store(long key, int id, int move) {
+      int start = this.set(key);
+      int entry = start;
+      for (int i = start; i < start + WAYS; i++) {
+         if ((this.keys[i] == key && this.ids[i] == id) ||
+               this.ids[i] == 0) {
+            entry = i;
+            break;
+         }
+         if (this.used[i] < this.used[entry]) {
+            entry = i;
+         }
+      }
+      this.keys[entry] = key;
+      this.ids[entry] = (byte) id;
+      this.moves[entry] = (byte) move;
+      this.used[entry] = ++this.clock;
+   }
+
+   /**
+    * @return  the first entry of the set the key picks
+    */
+   private int set(long key) {
+      //keys have long runs of equal bits; mixing spreads them over the sets
+      long mixed = key * 0x9E3779B97F4A7C15L;
+      return ((int) (mixed >>> 32) & this.setMask) * WAYS;
+   }
+
+   /**
+    * Appends the moves stored since the last flush to the file (if the cache
+    *    has one), and compacts the file if that makes it too large.
+    *
+    * @throws IOException
+    */
+   public synchronized void flush() throws IOException {
+      if (this.file == null || this.pending == 0) {
+         return;
+      }
+      DataOutputStream out;
+      if (!this.file.exists()) {
+         this.records = 0;
+         out = this.create(this.file);
+      } else {
+         out = new DataOutputStream(new BufferedOutputStream(
+               new FileOutputStream(this.file, true),
+               this.pending * RECORD_BYTES));
+      }
+      try {
+         for (int i = 0; i < this.pending; i++) {
+            writeRecord(out, this.pendingKeys[i], this.pendingIds[i],
+                  this.pendingMoves[i]);
+         }
+      } finally {
+         out.close();
+      }
+      this.records += this.pending;
+      this.pending = 0;
+      this.compactIfLarge(this.file);
+   }
+
+   /**
+    * @return  the number of lookups that found a move
+    */
+   public synchronized long getHits() {
+      return this.hits;
+   }
+
+   /**
+    * @return  the number of lookups that did not
+    */
+   public synchronized long getMisses() {
+      return this.misses;
+   }
+
+   /**
+    * @return  the number of moves the cache holds
+    */
+   public synchronized int size() {
+      int size = 0;
+      for (byte id : this.ids) {
+         if (id != 0) {
+            size++;
+         }
+      }
+      return size;
+   }
+}
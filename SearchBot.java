@@ -0,0 +1,291 @@
+package bot;
+
+/**
+ * This bot looks ahead.
+ *    Unlike TrapBot, which only looks at the moves it can make right now,
+ *    it searches the moves of both players as deep as it can in the time it
+ *    has, using TrapBot's rules to score the positions at the end of the
+ *    search (see Negamax).
+ *
+ * It can also ponder: while the opponent thinks, a background thread
+ *    searches our answer to each of the opponent's likely replies (the
+ *    reply the opponent's own search prefers first, then center first).
+ *    When the engine sends the new field:
+ *       if it was pondered at least as deep as we normally search, the
+ *          answer is played at once, and
+ *       otherwise the normal search starts warm, because the pondering
+ *          filled the shared TranspositionTable.
+ *    The thread is cancelled and joined before anything from the engine is
+ *       handled, so the two searches never run at the same time.
+ *
+ * Its own moves can be searched on several threads (see ParallelSearch).
+ *
+ * @version 10/16/26
+ */
+public class SearchBot extends BotStarter {
+
+   //memory given to the TranspositionTable unless told otherwise
+   public static final int DEFAULT_TABLE_MEGABYTES = 32;
+   //milliseconds spent on each reply in the first round of pondering; every
+   //round after that doubles it
+   private static final long PONDER_SLICE = 50;
+
+   private final TranspositionTable table;
+   private final ParallelSearch search;
+   private final TimeManager time;
+   //depth of the last search of our own move
+   private int lastDepth;
+
+   private boolean pondering;
+   private final Negamax ponderSearch;
+   private final TimeManager ponderTime;
+   private final Bitboard ponderBoard;
+   private Thread ponderThread;
+   private volatile boolean stopPonder;
+   //our answer to each reply pondered: hash of the position after the reply,
+   //   the column to play, how deep it was searched and its score
+   private final long[] ponderHashes;
+   private final int[] ponderMoves;
+   private final int[] ponderDepths;
+   private final int[] ponderScores;
+   private int ponderCount;
+
+   public SearchBot(int rows, int columns) {
+      this(rows, columns, DEFAULT_TABLE_MEGABYTES, 1);
+   }
+
+   /**
+    * @param rows
+    * @param columns
+    * @param tableMegabytes   the memory cap of the TranspositionTable
+    * @param threads          the number of threads to search our moves with
+    *                            (1 searches without any extra threads)
+    */
+   public SearchBot(int rows, int columns, int tableMegabytes, int threads) {
+      this(rows, columns, WinningLines.STANDARD_LENGTH, tableMegabytes,
+            threads);
+   }
+
+   /**
+    * @param rows
+    * @param columns
+    * @param connect          the number of discs in a line that wins the game
+    * @param tableMegabytes   the memory cap of the TranspositionTable
+    * @param threads          the number of threads to search our moves with
+    *                            (1 searches without any extra threads)
+    */
+   public SearchBot(int rows, int columns, int connect, int tableMegabytes,
+         int threads) {
+      super(rows, columns, connect);
+      this.table = new TranspositionTable(tableMegabytes);
+      this.search = new ParallelSearch(rows, columns, connect, this.table,
+            threads);
+      this.time = new TimeManager();
+      this.ponderSearch = new Negamax(rows, columns, connect, this.table);
+      this.ponderTime = new TimeManager();
+      this.ponderBoard = new Bitboard(rows, columns, connect);
+      this.ponderHashes = new long[columns];
+      this.ponderMoves = new int[columns];
+      this.ponderDepths = new int[columns];
+      this.ponderScores = new int[columns];
+   }
+
+   @Override
+   public int makeTurn() {
+      this.stopPondering();
+      Bitboard board = super.getBoard();
+      int pondered = this.ponderedMove(board.hash());
+      if (pondered >= 0) {
+         return pondered;
+      }
+      int free = Long.bitCount(board.freeMask());
+      int cells = board.rows() * board.columns();
+      //we make every other move, starting with this one
+      this.time.start(this.timeLeft, this.timePerMove, (free + 1) / 2,
+            (double) (cells - free) / cells);
+      int column = this.search.bestMove(board, this.myID, this.time);
+      if (this.search.getCompletedDepth() > 0) {
+         this.lastDepth = this.search.getCompletedDepth();
+      }
+      return column;
+   }
+
+   /**
+    * @param hash the hash of the field we have to move in
+    * @return  the pondered answer to this field if it is good enough to play
+    *             without searching again; otherwise, -1
+    */
+   private int ponderedMove(long hash) {
+      for (int i = 0; i < this.ponderCount; i++) {
+         if (this.ponderHashes[i] == hash &&
+               (this.ponderDepths[i] >= this.lastDepth ||
+               Math.abs(this.ponderScores[i]) >= Negamax.WIN_BOUND)) {
+            return this.ponderMoves[i];
+         }
+      }
+      return -1;
+   }
+
+   /**
+    * @Postcondition: the search of our move (if one is running) stops at
+    *                 once, and so does every one after it
+    */
+   @Override
+   public void cancel() {
+      this.time.cancel();
+   }
+
+   /**
+    * Forgets everything the searches learned, so the next game (or the
+    *    next position of a BatchEvaluator) starts as a new bot would.
+    * @Postcondition: no pondering is running, and the table, the move
+    *                 ordering and the pondered answers are empty
+    */
+   @Override
+   public void gameOver() {
+      super.gameOver();
+      this.stopPondering();
+      this.table.clear();
+      this.search.clear();
+      this.ponderSearch.clear();
+      this.ponderCount = 0;
+      this.lastDepth = 0;
+   }
+
+   /**
+    * @Postcondition: no pondering is running, and the search's helper
+    *                 threads (if any) are gone
+    */
+   @Override
+   public void close() {
+      this.stopPondering();
+      this.search.close();
+   }
+
+   /**
+    * @param pondering  true to think on the opponent's time
+    */
+   public void setPondering(boolean pondering) {
+      this.pondering = pondering;
+   }
+
+   @Override
+   public void ponder(int column) {
+      if (!this.pondering) {
+         return;
+      }
+      this.stopPondering();
+      this.ponderCount = 0;
+      this.ponderBoard.copyFrom(super.getBoard());
+      this.ponderBoard.play(column, this.myID);
+      if (this.ponderBoard.isWin(this.myID) ||
+            this.ponderBoard.legalMoves() == 0) {
+         return;//the game is over
+      }
+      this.stopPonder = false;
+      this.ponderTime.clearCancel();
+      final int id = this.myID;
+      this.ponderThread = new Thread(new Runnable() {
+         public void run() {
+            SearchBot.this.ponderReplies(id);
+         }
+      }, "ponder");
+      this.ponderThread.setDaemon(true);
+      this.ponderThread.start();
+   }
+
+   @Override
+   public void stopPondering() {
+      if (this.ponderThread == null) {
+         return;
+      }
+      this.stopPonder = true;
+      this.ponderTime.cancel();
+      boolean interrupted = false;
+      while (this.ponderThread.isAlive()) {
+         try {
+            this.ponderThread.join();
+         } catch (InterruptedException e) {
+            interrupted = true;
+         }
+      }
+      this.ponderThread = null;
+      if (interrupted) {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   /**
+    * Runs on the ponder thread: searches our answer to every reply of the
+    *    opponent, in rounds that each get twice as long as the last, until
+    *    stopPondering is called.
+    *
+    * @param id   our id
+    */
+   private void ponderReplies(int id) {
+      int opp = 3 - id;
+      Bitboard board = this.ponderBoard;
+      int columns = board.columns();
+      //the reply the opponent would pick first, then the rest center first
+      int[] replies = new int[columns];
+      this.ponderTime.startFixed(PONDER_SLICE);
+      replies[0] = this.ponderSearch.bestMove(board, opp, this.ponderTime);
+      int numReplies = 1;
+      for (int i = 0; i < columns; i++) {
+         int col = this.ponderSearch.orderedColumn(i);
+         if (col != replies[0] &&
+               (board.legalMoves() & board.columnMask(col)) != 0) {
+            replies[numReplies++] = col;
+         }
+      }
+      for (long slice = PONDER_SLICE; !this.stopPonder; slice *= 2) {
+         boolean solved = true;
+         for (int i = 0; i < numReplies && !this.stopPonder; i++) {
+            board.play(replies[i], opp);
+            if (!board.isWin(opp) && board.legalMoves() != 0) {
+               this.ponderTime.startFixed(slice);
+               int move = this.ponderSearch.bestMove(board, id,
+                     this.ponderTime);
+               int depth = this.ponderSearch.getCompletedDepth();
+               int score = this.ponderSearch.getBestScore();
+               this.record(board.hash(), move, depth, score);
+               //forced moves, forced results and fully searched positions
+               //will not get any better
+               solved &= depth == 0 || Math.abs(score) >= Negamax.WIN_BOUND ||
+                     depth >= Long.bitCount(board.freeMask());
+            }
+            board.undo(replies[i]);
+         }
+         if (solved) {
+            return;//nothing left to learn
+         }
+      }
+   }
+
+   private void record(long hash, int move, int depth, int score) {
+      if (depth == 0) {
+         return;//forced moves are found at once anyway
+      }
+      int i = 0;
+      while (i < this.ponderCount && this.ponderHashes[i] != hash) {
+         i++;
+      }
+      if (i == this.ponderCount) {
+         this.ponderCount++;
+      } else if (this.ponderDepths[i] >= depth) {
+         return;
+      }
+      this.ponderHashes[i] = hash;
+      this.ponderMoves[i] = move;
+      this.ponderDepths[i] = depth;
+      this.ponderScores[i] = score;
+   }
+
+   /**
+    * @return  the search used to pick moves, to look at how the last search
+    *             went (nodes, depth and score)
+    */
+   public ParallelSearch getSearch() {
+      return this.search;
+   }
+}
@@ -0,0 +1,230 @@
+package bot;
+
+/**
+ * ThreatAnalyzer class
+ *
+ * Finds the threats of both players in a position, all at once, as bitboard
+ *    masks (see Bitboard):
+ *       a threat of a player is a free location that would complete a
+ *          winning line for the player, and
+ *       the threats a move makes are the free locations that would become
+ *          threats of the player once the move is made.
+ *    The threats are worked out the first time they are asked for in a
+ *    position and kept until the position changes (the key of the board
+ *    tells), so the steps of a bot can ask as often as they like.
+ *
+ * It also tells who controls zugzwang, by the rules of Allis:
+ *    near the end of the game, the players usually have to fill up the
+ *    columns, and whoever gets to claim the squares of the right parity
+ *    wins. Counting from the bottom (the bottom row is row 1), the first
+ *    player wants a threat on an odd row and the second player one on an
+ *    even row; the second player controls zugzwang unless the first player
+ *    has a good threat (see zugzwangControl). These rules are exact only in
+ *    simple endgames, so they are a guide for evaluation, not a proof.
+ *
+ * @version 10/16/26
+ */
+public class ThreatAnalyzer {
+
+   private final Bitboard board;
+   private final WinningLines lines;
+   //locations in odd rows counted from the bottom (Allis' parity)
+   private final long oddFromBottom;
+   //the key of the position the threats are of
+   private long key;
+   private boolean analyzed;
+   //threats by id
+   private final long[] threats = new long[3];
+   //the threats a move in each column makes, by id and column
+   private final long[][] made;
+
+   /**
+    * @param board   the board to analyze; the analyzer follows it as it
+    *                   changes
+    * @param lines   the winning lines of a field of the board's size
+    */
+   public ThreatAnalyzer(Bitboard board, WinningLines lines) {
+      this.board = board;
+      this.lines = lines;
+      this.made = new long[3][board.columns()];
+      long odd = 0;
+      for (int row = 0; row < board.rows(); row++) {
+         if ((board.rows() - row) % 2 == 1) {
+            odd |= board.rowMask(row);
+         }
+      }
+      this.oddFromBottom = odd;
+   }
+
+   /**
+    * @Postcondition: the threats are those of the position on the board
+    */
+   private void analyze() {
+      long key = this.board.key();
+      if (this.analyzed && key == this.key) {
+         return;
+      }
+      this.key = key;
+      this.analyzed = true;
+      for (int id = 1; id <= 2; id++) {
+         this.threats[id] = this.board.winningCells(id);
+         long mine = this.board.discs(id);
+         long theirs = this.board.discs(3 - id);
+         long free = this.board.freeMask();
+         for (int col = 0; col < this.board.columns(); col++) {
+            long cells = 0;
+            int row = this.board.availableRow(col);
+            if (row >= 0) {
+               long move = this.board.cell(row, col);
+               //a line with all but two of its locations ours, none of
+               //theirs and the move has one free location left: the threat
+               //the move makes
+               for (int i = 0; i < this.lines.numLines(row, col); i++) {
+                  long line = this.lines.mask(this.lines.line(row, col, i));
+                  if (Long.bitCount(line & mine) == this.lines.length() - 2 &&
+                        (line & theirs) == 0) {
+                     cells |= line & free & ~move;
+                  }
+               }
+            }
+            this.made[id][col] = cells;
+         }
+      }
+   }
+
+   /**
+    * Forgets the threats, so the next question works them out again even if
+    *    the position is the same. Play never needs this; the benchmarks use
+    *    it to time the analysis itself.
+    */
+   public void invalidate() {
+      this.analyzed = false;
+   }
+
+   /**
+    * @param id   the id of a player (must be 1 or 2)
+    * @return  the threats of the player
+    */
+   public long threats(int id) {
+      this.analyze();
+      return this.threats[id];
+   }
+
+   /**
+    * @param id   the id of a player (must be 1 or 2)
+    * @return  the threats of the player in the odd rows of the field (see
+    *             Bitboard.oddRows)
+    */
+   public long oddThreats(int id) {
+      return this.threats(id) & this.board.oddRows();
+   }
+
+   /**
+    * @param id   the id of a player (must be 1 or 2)
+    * @return  the threats of the player in the even rows of the field (see
+    *             Bitboard.evenRows)
+    */
+   public long evenThreats(int id) {
+      return this.threats(id) & this.board.evenRows();
+   }
+
+   /**
+    * @param id   the id of a player (must be 1 or 2)
+    * @param col  a column that is not full
+    * @return  the threats the player would make by playing in the column
+    */
+   public long threatsMadeBy(int id, int col) {
+      this.analyze();
+      return this.made[id][col];
+   }
+
+   /**
+    * @param id         the id of a player (must be 1 or 2)
+    * @param candidates a mask of columns (see CandidateMoves)
+    * @param cells      the locations we want threats in
+    * @return  the candidates where the player would make a threat in one of
+    *             the given locations
+    */
+   public int columnsMakingThreats(int id, int candidates, long cells) {
+      this.analyze();
+      int columns = 0;
+      for (int left = candidates; left != 0; left &= left - 1) {
+         int col = Integer.numberOfTrailingZeros(left);
+         if ((this.made[id][col] & cells) != 0) {
+            columns |= 1 << col;
+         }
+      }
+      return columns;
+   }
+
+   /**
+    * @param id   the id of a player (must be 1 or 2)
+    * @return  the threats of the player on rows of the parity that helps it
+    *             in zugzwang: odd rows (counted from the bottom) for player
+    *             1, even rows for player 2
+    */
+   public long goodThreats(int id) {
+      long parity = id == 1 ? this.oddFromBottom :
+            this.board.boardMask() & ~this.oddFromBottom;
+      return this.threats(id) & parity;
+   }
+
+   /**
+    * Only the lowest threat of each column counts: the column fills up from
+    *    the bottom, so the lowest threat is the one that is played out.
+    *    1. If player 1 has a good (odd) threat and player 2 has no good
+    *       (even) threat, player 1 controls zugzwang.
+    *    2. If both have good threats, the lower of the two is played out
+    *       first and decides.
+    *    3. Otherwise, player 2 controls zugzwang: it can answer every move in
+    *       the same column and claim all of the even squares.
+    *
+    * @return  the id of the player that controls zugzwang
+    */
+   public int zugzwangControl() {
+      long lowest = this.lowestThreats();
+      long first = lowest & this.goodThreats(1);
+      long second = lowest & this.goodThreats(2) & ~first;
+      if (first == 0) {
+         return 2;
+      }
+      if (second == 0) {
+         return 1;
+      }
+      return this.lowestRow(first) > this.lowestRow(second) ? 1 : 2;
+   }
+
+   /**
+    * @param id   the id of a player (must be 1 or 2)
+    * @return  1 if the player controls zugzwang, -1 if the opponent does
+    */
+   public int parity(int id) {
+      return this.zugzwangControl() == id ? 1 : -1;
+   }
+
+   /**
+    * @return  the lowest threat (of either player) in each column
+    */
+   private long lowestThreats() {
+      long all = this.threats(1) | this.threats(2);
+      long lowest = 0;
+      for (int col = 0; col < this.board.columns(); col++) {
+         long column = all & this.board.columnMask(col);
+         lowest |= Long.lowestOneBit(column);//lower rows have lower bits
+      }
+      return lowest;
+   }
+
+   /**
+    * @param cells   a mask that is not empty
+    * @return  the row (of the field) of the lowest of the locations
+    */
+   private int lowestRow(long cells) {
+      int lowest = -1;
+      for (; cells != 0; cells &= cells - 1) {
+         lowest = Math.max(lowest,
+               this.board.row(Long.numberOfTrailingZeros(cells)));
+      }
+      return lowest;
+   }
+}
@@ -0,0 +1,146 @@
+package bot;
+
+/**
+ * TimeManager class
+ *
+ * Decides how long a search may think about a move.
+ *
+ * The engine gives every bot a time bank. Each move, time_per_move is added
+ *    to it and the bot is told how much is left; whatever the bot does not
+ *    use is kept for later moves. So the bot can afford to think longer than
+ *    time_per_move, as long as the bank lasts until the end of the game.
+ *
+ * Every move gets two deadlines:
+ *    the soft deadline is its fair share of the bank (more in the middle of
+ *       the game, where moves are hardest). A search should not start
+ *       another iteration once it is unlikely to finish before it.
+ *    the hard deadline is the latest the search may run. Past it, the search
+ *       must give up immediately and answer with what it has.
+ * All times are in milliseconds unless they are deadlines, which are
+ *    System.nanoTime() values.
+ *
+ * Another thread can cancel the clock, which makes the hard deadline pass
+ *    at once. A cancelled clock stays cancelled (even through start) until
+ *    clearCancel is called, so a search on another thread can never miss it.
+ *
+ * @version 10/16/26
+ */
+public class TimeManager {
+
+   //time kept back for reading, writing and the JVM
+   private static final long SAFETY_MARGIN = 30;
+   //how many times the soft budget the hard deadline may be
+   private static final int HARD_FACTOR = 3;
+   //an unstable search may use this many times the soft budget
+   private static final int UNSTABLE_FACTOR = 2;
+
+   private long start;
+   private long softBudget;
+   private long hardBudget;
+   private long hardDeadline;
+   private volatile boolean cancelled;
+
+   /**
+    * Starts the clock for a move.
+    *
+    * @param timeLeft      what is left in the time bank right now
+    * @param timePerMove   what is added to the time bank every move
+    * @param movesLeft     an estimate of how many more moves we will make
+    *                         (including this one)
+    * @param phase         how far into the game we are, from 0.0 (empty
+    *                         field) to 1.0 (full field)
+    */
+   public void start(long timeLeft, long timePerMove, int movesLeft,
+         double phase) {
+      this.start = System.nanoTime();
+      movesLeft = Math.max(movesLeft, 1);
+      long usable = Math.max(timeLeft - SAFETY_MARGIN, 1);
+      //the bank has to last for the remaining moves, which each add to it
+      long share = (usable + (movesLeft - 1) * timePerMove) / movesLeft;
+      //midgame moves get up to half as much again, openings and endings
+      //half as much
+      double weight = 0.5 + 4.0 * phase * (1.0 - phase);
+      long soft = Math.max((long) (share * weight), 1);
+      this.hardBudget = Math.min(soft * HARD_FACTOR, usable);
+      this.softBudget = Math.min(soft, this.hardBudget);
+      this.hardDeadline = this.start + this.hardBudget * 1000000L;
+   }
+
+   /**
+    * Starts the clock with a fixed budget: both deadlines are the same.
+    *
+    * @param millis  how long the search may run
+    */
+   public void startFixed(long millis) {
+      this.start = System.nanoTime();
+      this.softBudget = millis;
+      this.hardBudget = millis;
+      this.hardDeadline = this.start + millis * 1000000L;
+   }
+
+   /**
+    * Makes the hard deadline pass now. Safe to call from any thread.
+    */
+   public void cancel() {
+      this.cancelled = true;
+   }
+
+   /**
+    * @Postcondition: the clock is no longer cancelled
+    */
+   public void clearCancel() {
+      this.cancelled = false;
+   }
+
+   /**
+    * @return  true once the hard deadline has passed or the clock was
+    *             cancelled: the search must stop
+    */
+   public boolean hardExpired() {
+      return this.cancelled || System.nanoTime() - this.hardDeadline > 0;
+   }
+
+   /**
+    * Called between iterations of a search.
+    *    The next iteration usually takes longer than all the earlier ones
+    *    together, so it is only worth starting while we have used less than
+    *    half of the budget.
+    *
+    * @param unstable   true if the best move changed in the last iteration,
+    *                      which means the position deserves more time
+    * @return  true if the search should go one ply deeper
+    */
+   public boolean shouldDeepen(boolean unstable) {
+      long budget = this.softBudget;
+      if (unstable) {
+         budget = Math.min(budget * UNSTABLE_FACTOR, this.hardBudget);
+      }
+      return this.elapsed() * 2 < budget;
+   }
+
+   /**
+    * Called by a search that can stop at any moment with an answer (see
+    *    MonteCarloSearch), rather than between iterations.
+    *
+    * @return  true once the soft budget is used up, or the hard deadline
+    *             has passed: the search should stop
+    */
+   public boolean softExpired() {
+      return this.elapsed() >= this.softBudget || this.hardExpired();
+   }
+
+   /**
+    * @return  milliseconds since start was called
+    */
+   public long elapsed() {
+      return (System.nanoTime() - this.start) / 1000000L;
+   }
+
+   public long getSoftBudget() {
+      return this.softBudget;
+   }
+
+   public long getHardBudget() {
+      return this.hardBudget;
+   }
+}
@@ -0,0 +1,160 @@
+package bot;
+
+import java.util.Arrays;
+
+/**
+ * TranspositionTable class
+ *
+ * A fixed-size table of searched positions, keyed by their Zobrist hash.
+ *    A search reaches the same position through different orders of moves;
+ *    the table remembers what it found the first time.
+ *    Searches store positions under Bitboard.canonicalHash, so a position
+ *    and its mirror image share an entry, with the best move as it is in the
+ *    position the hash belongs to (see mirrorMove).
+ *
+ * Some things to note when interacting with this class.
+ *    The table is made of buckets of two entries:
+ *       the first entry keeps the deepest search of the positions that fall
+ *          in the bucket (depth-preferred), and
+ *       the second entry keeps whatever was stored last (always-replace).
+ *    An entry is two longs: the hash of the position and its packed data.
+ *       bits  0 - 31: score
+ *       bits 32 - 39: depth
+ *       bits 40 - 41: bound (EXACT, LOWER or UPPER; 0 means empty)
+ *       bits 42 - 49: best move (NO_MOVE if there is none)
+ *    probe returns the packed data (0 if the position is not in the table),
+ *       and the static methods below unpack it. Nothing is allocated.
+ *
+ * The table can be shared by searches on several threads without locks.
+ *    Each entry stores (hash XOR data) instead of the hash. If two threads
+ *    write the same entry at once and it ends up with the key of one write
+ *    and the data of the other, the XOR no longer gives back the hash, so the
+ *    torn entry is treated as empty instead of being trusted.
+ *
+ * @version 10/16/26
+ */
+public class TranspositionTable {
+
+   //the score is the exact value of the position
+   public static final int EXACT = 1;
+   //the score is at least the value of the position (a beta cutoff)
+   public static final int LOWER = 2;
+   //the score is at most the value of the position (no move beat alpha)
+   public static final int UPPER = 3;
+   public static final int NO_MOVE = 0xFF;
+
+   //bytes taken up by one bucket: two entries of two longs
+   private static final int BUCKET_BYTES = 4 * 8;
+
+   private final long[] keys;
+   private final long[] data;
+   private final int bucketMask;
+
+   /**
+    * @Precondition: megabytes is positive; otherwise,
+    *                   throws an IllegalArgumentException
+    * @param megabytes  the most memory the table may take up; the number of
+    *                      buckets is the largest power of two that fits
+    */
+   public TranspositionTable(int megabytes) {
+      if (megabytes <= 0) {
+         throw new IllegalArgumentException();
+      }
+      long buckets = Long.highestOneBit(
+            (long) megabytes * 1024 * 1024 / BUCKET_BYTES);
+      //two entries per bucket must still fit in an array
+      buckets = Math.min(buckets, 1 << 29);
+      this.keys = new long[(int) buckets * 2];
+      this.data = new long[(int) buckets * 2];
+      this.bucketMask = (int) buckets - 1;
+   }
+
+   /**
+    * @param hash the Zobrist hash of a position
+    * @return  the packed data of the position, or 0 if it is not in the table
+    */
+   public long probe(long hash) {
+      int i = ((int) hash & this.bucketMask) * 2;
+      long entry = this.data[i];
+      if (entry != 0 && (this.keys[i] ^ entry) == hash) {
+         return entry;
+      }
+      entry = this.data[i + 1];
+      if (entry != 0 && (this.keys[i + 1] ^ entry) == hash) {
+         return entry;
+      }
+      return 0;
+   }
+
+   /**
+    * @param hash    the Zobrist hash of a position
+    * @param depth   how many plies deep the position was searched (0 to 255)
+    * @param score
+    * @param bound   EXACT, LOWER or UPPER
+    * @param move    the best column found, or NO_MOVE
+    */
+   public void store(long hash, int depth, int score, int bound, int move) {
+      long entry = (score & 0xFFFFFFFFL) | ((long) depth << 32) |
+            ((long) bound << 40) | ((long) (move & 0xFF) << 42);
+      int i = ((int) hash & this.bucketMask) * 2;
+      long oldKey = this.keys[i];
+      long oldEntry = this.data[i];
+      boolean same = (oldKey ^ oldEntry) == hash;
+      if (same || oldEntry == 0 || depth >= depth(oldEntry)) {
+         if (!same && oldEntry != 0) {
+            //the shallower position still gets a chance in the other entry
+            this.keys[i + 1] = oldKey;
+            this.data[i + 1] = oldEntry;
+         }
+         this.keys[i] = hash ^ entry;
+         this.data[i] = entry;
+      } else {
+         this.keys[i + 1] = hash ^ entry;
+         this.data[i + 1] = entry;
+      }
+   }
+
+   /**
+    * Turns a move of a position into the move of its canonical form, or back:
+    *    the mirror image of a mirror image is the move itself.
+    *
+    * @param move       a column, or NO_MOVE
+    * @param board      the board of the position
+    * @param mirrored   Bitboard.hashIsMirrored of the position
+    * @return  the move in the other form (NO_MOVE stays NO_MOVE)
+    */
+   public static int mirrorMove(int move, Bitboard board, boolean mirrored) {
+      return mirrored && move != NO_MOVE ? board.mirrorColumn(move) : move;
+   }
+
+   /**
+    * @Postcondition: the table is empty
+    */
+   public void clear() {
+      Arrays.fill(this.keys, 0L);
+      Arrays.fill(this.data, 0L);
+   }
+
+   /**
+    * @return  the number of entries the table can hold
+    */
+   public int capacity() {
+      return this.keys.length;
+   }
+
+   public static int score(long entry) {
+      return (int) entry;
+   }
+
+   public static int depth(long entry) {
+      return (int) (entry >>> 32) & 0xFF;
+   }
+
+   public static int bound(long entry) {
+      return (int) (entry >>> 40) & 0x3;
+   }
+
+   public static int move(long entry) {
+      return (int) (entry >>> 42) & 0xFF;
+   }
+}
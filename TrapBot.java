@@ -1,6 +1,5 @@
 package bot;
 
-import java.util.*;
 /**
  * This bot is obsessed with traps.
  *    If this bot can win, it tries to.
@@ -9,49 +8,178 @@ import java.util.*;
  *    If the opponent can set up a trap, it attempts to block it.
  *    In all other cases, it chooses the column with the best chances of
  *       winning the game.
+ *    Near the end of the game, it stops guessing: once few enough locations
+ *       are free (see setEndgameThreshold), it plays perfectly by solving
+ *       the rest of the game (see EndgameSolver).
+ * 
+ * Each of these steps is a scrape method that is given a mask of candidate
+ *    columns (see CandidateMoves) and gives back the ones it keeps, without
+ *    changing anything else. So the steps can be run one at a time, or on any
+ *    candidates, without getting in each other's way; they are
+ *    package-private so the benchmarks can time them.
  * 
  * @author RyanPachauri
  * @version 5/12/16
  */
 public class TrapBot extends BotStarter {
 
+   //the stages of makeTurn, in the order they are run (see TurnProfiler)
+   static final int WIN = 0;
+   static final int BLOCK = 1;
+   static final int ENDGAME = 2;
+   static final int ALMOST_WINS = 3;
+   static final int THREATS = 4;
+   static final int MIDDLE_TRAPS = 5;
+   static final int OPP_MIDDLE_TRAPS = 6;
+   static final int STACK_TRAPS = 7;
+   static final int OPP_STACK_TRAPS = 8;
+   static final int BEST_LOCATION = 9;
+   static final String[] STAGES = {"scrapeToWin", "scrapeToWin(opp)",
+         "endgameSolver", "scrapeAgainstAlmostWins", "scrapeThreats",
+         "scrapeMiddleTraps", "scrapeMiddleTraps(opp)", "scrapeStackTraps",
+         "scrapeStackTraps(opp)", "bestAvailableLocation"};
+
+   //the threats of the field, worked out once per position
+   private final ThreatAnalyzer threats;
+   //solves the endgame; made the first time it is needed
+   private EndgameSolver solver;
+   private int endgameThreshold = EndgameSolver.DEFAULT_THRESHOLD;
+   //null unless the turns are profiled
+   private TurnProfiler profiler;
+
    public TrapBot(int rows, int columns) {
-      super(rows, columns);
+      this(rows, columns, WinningLines.STANDARD_LENGTH);
+   }
+
+   /**
+    * @param rows
+    * @param columns
+    * @param connect the number of discs in a line that wins the game
+    */
+   public TrapBot(int rows, int columns, int connect) {
+      super(rows, columns, connect);
+      this.threats = new ThreatAnalyzer(super.getBoard(), super.getLines());
    }
 
    @Override
    public int makeTurn() {
+      if (this.profiler != null) {
+         this.profiler.startTurn();
+      }
       int oppID = 3 - this.myID;
+      int candidates = this.availableMoves.mask();
       int winColumn = this.scrapeToWin(this.myID);//attempts to win immediately
-      if (winColumn != 7) {
-         return winColumn;
+      if (winColumn >= 0) {
+         return this.decide(WIN, candidates, winColumn);
       }
+      this.stage(WIN, candidates, candidates);
       winColumn = this.scrapeToWin(oppID);
-      if (winColumn != 7) {
-         return winColumn;
+      if (winColumn >= 0) {
+         return this.decide(BLOCK, candidates, winColumn);
+      }
+      this.stage(BLOCK, candidates, candidates);
+      Bitboard board = super.getBoard();
+      if (Long.bitCount(board.freeMask()) <= this.endgameThreshold) {
+         if (this.solver == null) {
+            this.solver = new EndgameSolver(board.rows(), board.columns(),
+                  board.connect());
+         }
+         this.solver.solve(board, this.myID);
+         return this.decide(ENDGAME, candidates, this.solver.getBestMove());
+      }
+      //each stage is given the candidates before it, then its own
+      candidates = this.stage(ALMOST_WINS, candidates,
+            this.scrapeAgainstAlmostWins(candidates, oppID));
+      candidates = this.stage(THREATS, candidates,
+            this.scrapeThreats(candidates, oppID));
+      candidates = this.stage(MIDDLE_TRAPS, candidates,
+            this.scrapeMiddleTraps(candidates, this.myID));
+      candidates = this.stage(OPP_MIDDLE_TRAPS, candidates,
+            this.scrapeMiddleTraps(candidates, oppID));
+      candidates = this.stage(STACK_TRAPS, candidates,
+            this.scrapeStackTraps(candidates, this.myID));
+      candidates = this.stage(OPP_STACK_TRAPS, candidates,
+            this.scrapeStackTraps(candidates, oppID));
+      return this.decide(BEST_LOCATION, candidates,
+            this.bestAvailableLocation(candidates));
+   }
+
+   /**
+    * Tells the profiler (if there is one) that a stage of makeTurn ended.
+    * 
+    * @return  kept
+    */
+   private int stage(int stage, int candidates, int kept) {
+      if (this.profiler != null) {
+         this.profiler.stage(stage, candidates, kept);
+      }
+      return kept;
+   }
+
+   /**
+    * Tells the profiler (if there is one) that a stage of makeTurn chose the
+    *    move.
+    * 
+    * @return  column
+    */
+   private int decide(int stage, int candidates, int column) {
+      if (this.profiler != null) {
+         this.profiler.stage(stage, candidates, column < 0 ? 0 : 1 << column);
+         this.profiler.decided(stage);
+      }
+      return column;
+   }
+
+   /**
+    * @param profiler   keeps track of the stages of each turn (see STAGES);
+    *                      null to stop profiling
+    */
+   public void setProfiler(TurnProfiler profiler) {
+      this.profiler = profiler;
+   }
+
+   /**
+    * @Postcondition:
+    *    1. The profile of the game (if any) is reported and reset
+    *    2. The endgame solver remembers nothing of the game
+    */
+   @Override
+   public void gameOver() {
+      super.gameOver();
+      if (this.solver != null) {
+         this.solver.clear();
+      }
+      if (this.profiler != null && this.profiler.getTurns() > 0) {
+         this.profiler.report();
+         this.profiler.reset();
       }
-      this.scrapeAgainstAlmostWins(oppID);
-      this.scrapeThreats(oppID);
-      this.scrapeMiddleTraps(this.myID);
-      this.scrapeMiddleTraps(oppID);
-      this.scrapeStackTraps(this.myID);
-      this.scrapeStackTraps(oppID);
-      return bestAvailableLocation();
+   }
+   
+   /**
+    * @param threshold  makeTurn solves the game exactly once at most this
+    *                      many locations are free (0 never solves it)
+    */
+   public void setEndgameThreshold(int threshold) {
+      this.endgameThreshold = threshold;
    }
    
    /**
     * Looking at the id, finds an available location(s) that could win the game
     *    for the player with that id
     *    i.e.  playing in this column wins the game for the player
-    *         
+    * 
+    * @param id
+    * @return  the leftmost column that wins the game for the player, or
+    *          -1 if there is none
     */
-   private int scrapeToWin(int id) {
-      for (Integer column : this.availableMoves.keySet()) {
-         if (super.positionToWin(this.availableMoves.get(column), column, id)) {
-            return column;
-         }
+   int scrapeToWin(int id) {
+      Bitboard board = super.getBoard();
+      long wins = board.winningMoves(id);
+      if (wins != 0) {
+         //the lowest bit belongs to the leftmost winning column
+         return board.column(Long.numberOfTrailingZeros(wins));
       }
-      return 7;
+      return -1;
    }
    
    /**
@@ -62,16 +190,25 @@ public class TrapBot extends BotStarter {
     *    If there are none, then it does not scrape any locations.
     *    If all available locations are in this situation, then it does not
     *       scrape any locations
+    * 
+    * @param candidates the columns left to choose from
+    * @param id
+    * @return  the candidates that are kept
     */
-   private void scrapeAgainstAlmostWins(int id) {
-      Set<Integer> almostWinningColumns = new HashSet<Integer>();
-      for (Integer column : this.availableMoves.keySet()) {
-         int row = this.availableMoves.get(column);
-         if (!super.belowAPositionToWin(row, column, id)) {
-            almostWinningColumns.add(column);
+   int scrapeAgainstAlmostWins(int candidates, int id) {
+      Bitboard board = super.getBoard();
+      //shifting down by one bit moves each winning cell onto the location
+      //directly below it
+      long belowWins = board.winningCells(id) >>> 1;
+      int almostWinningColumns = 0;
+      for (int left = candidates; left != 0; left &= left - 1) {
+         int column = Integer.numberOfTrailingZeros(left);
+         int row = this.availableMoves.row(column);
+         if ((belowWins & board.cell(row, column)) == 0) {
+            almostWinningColumns |= 1 << column;
          }
       }
-      this.scrapeLocations(almostWinningColumns);
+      return CandidateMoves.retain(candidates, almostWinningColumns);
    }
    
    /**
@@ -79,36 +216,62 @@ public class TrapBot extends BotStarter {
     *    A middle trap is where the player's tokens are in the middle of two
     *    options. The player has an option on either side to win.
     * 
+    * @param candidates the columns left to choose from
     * @param id   the id of a player
-    * @return  Set of columns where the player could set stack traps
+    * @return  the candidates where the player could set middle traps (all of
+    *             them if there are none)
+    */
+   int scrapeMiddleTraps(int candidates, int id) {
+      int middleTrapColumns = 0;
+      for (int left = candidates; left != 0; left &= left - 1) {
+         int column = Integer.numberOfTrailingZeros(left);
+         //we can only set a middle trap if there are more than 1 other
+         //available locations in possible wins for the available location we
+         //are considering
+         if (this.numAvailableLocs(this.availableMoves.row(column), column,
+               id, candidates) > 1) {
+            middleTrapColumns |= 1 << column;
+         }
+      }
+      return CandidateMoves.retain(candidates, middleTrapColumns);
+   }
+   
+   /**
+    * @return  the number of possible wins through the location that have
+    *             exactly one other available location (among the candidates)
     */
-   private void scrapeMiddleTraps(int id) {
-      Set<Integer> middleTrapColumns = new HashSet<Integer>();
-      for (Integer column : this.availableMoves.keySet()) {
-         //list of other availablelocations that are in possible wins for the
-         //available location we are considering
-         List<Integer> availableLocs =
-               this.getAvailableLocs(this.availableMoves.get(column), column, id);
-         //we can only set a middle trap if
-         //there are more than 1 other available locs
-         if (availableLocs.size() > 1) {
-            middleTrapColumns.add(column);
+   private int numAvailableLocs(int row, int column, int id, int candidates) {
+      int count = 0;
+      WinningLines lines = super.getLines();
+      for (int i = 0; i < lines.numLines(row, column); i++) {
+         int line = lines.line(row, column, i);
+         if (super.lineBelongsTo(line, id) && super.findAvailableLocation(
+               line, row, column, candidates) >= 0) {
+            count++;
          }
       }
-      this.scrapeLocations(middleTrapColumns);
+      return count;
    }
    
-   private List<Integer> getAvailableLocs(int row, int column, int id) {
-      List<Integer> availableLocs = new ArrayList<Integer>();
-      Set<Integer[][]> possibleWins =
-            super.getPossibleWins(row, column, id);
-      for (Integer[][] line : possibleWins) {
+   /**
+    * @return  a mask of the columns of the other available locations (among
+    *             the candidates) in possible wins through the location
+    */
+   private int getAvailableLocs(int row, int column, int id, int candidates) {
+      int availableLocs = 0;
+      WinningLines lines = super.getLines();
+      for (int i = 0; i < lines.numLines(row, column); i++) {
+         int line = lines.line(row, column, i);
+         if (!super.lineBelongsTo(line, id)) {
+            continue;
+         }
          //finds the available location in the line
-         Integer[] freeLoc = super.findAvailableLocation(line, row, column);
+         int freeCol = super.findAvailableLocation(line, row, column,
+               candidates);
          //checks that there is indeed an available location in the line
          //(other than the possible available location given to us)
-         if (freeLoc != null) {
-            availableLocs.add(freeLoc[0]);
+         if (freeCol >= 0) {
+            availableLocs |= 1 << freeCol;
          }
       }
       return availableLocs;
@@ -123,38 +286,36 @@ public class TrapBot extends BotStarter {
     *          1. Prevent the player's win in the bottom row
     *             -> This would allow the player to win in the "stacked" row
     *          2. Allow the player's win in the bottom row
+    * 
+    * @param candidates the columns left to choose from
+    * @param id   the id of a player
+    * @return  the candidates that are kept
     */
-   private void scrapeStackTraps(int id) {
-      List<Integer>[] freeLocations = super.getFreeLocations();
-      for (int row = freeLocations.length - 1; row > 0; row--) {
-         Set<Integer> availableColumns = new HashSet<Integer>();
-         for (Integer column : freeLocations[row]) {
-            if (freeLocations[row - 1].contains(column)) {
-               List<Integer> bRowLocs = 
-                     this.getAvailableLocs(row, column, id);
-               List<Integer> tRowLocs =
-                     this.getAvailableLocs(row - 1, column, id);
+   int scrapeStackTraps(int candidates, int id) {
+      Bitboard board = super.getBoard();
+      for (int row = board.rows() - 1; row > 0; row--) {
+         int availableColumns = 0;
+         for (int column = 0; column < board.columns(); column++) {
+            if (board.get(row, column) != 0) {
+               continue;
+            }
+            if (board.get(row - 1, column) == 0) {
+               int bRowLocs = 
+                     this.getAvailableLocs(row, column, id, candidates);
+               int tRowLocs =
+                     this.getAvailableLocs(row - 1, column, id, candidates);
                if (super.positionToWin(row, column, id)) {
-                  for (Integer col : tRowLocs) {
-                     availableColumns.add(col);
-                  }
+                  availableColumns |= tRowLocs;
                } else if (super.positionToWin(row - 1, column, id)) {
-                  for (Integer col : bRowLocs) {
-                     availableColumns.add(col);
-                  }
+                  availableColumns |= bRowLocs;
                } else {
-                  for (Integer bCol : bRowLocs) {
-                     for (Integer tCol : tRowLocs) {
-                        if (bCol == tCol) {
-                           availableColumns.add(bCol);
-                        }
-                     }
-                  }
+                  availableColumns |= bRowLocs & tRowLocs;
                }
             }
-            this.scrapeLocations(availableColumns);
+            candidates = CandidateMoves.retain(candidates, availableColumns);
          }
       }
+      return candidates;
    }
    
    /**
@@ -164,166 +325,168 @@ public class TrapBot extends BotStarter {
     *       We will not reach this point if there is an available location that
     *          has a possible win because we will have already returned it at
     *          that point.
-    * Threats are stored in a Map using the same format used for available
-    *    columns because there can only be one type of threat per player per
-    *    column.
+    * Threats are stored as bitboard masks of free locations, split by the
+    *    parity of their row.
     * 
+    * @param candidates the columns left to choose from
+    * @param oppID
+    * @return  the candidates that are kept
     */
-   private void scrapeThreats(int oppID) {
-      Map<Integer, Integer> myOddThreats = this.getOddThreats(this.myID);
-      Map<Integer, Integer> myEvenThreats = this.getEvenThreats(this.myID);
-      Map<Integer, Integer> oppOddThreats = this.getOddThreats(oppID);
-      Map<Integer, Integer> oppEvenThreats = this.getEvenThreats(oppID);
+   int scrapeThreats(int candidates, int oppID) {
+      long myOddThreats = this.getOddThreats(this.myID);
+      long myEvenThreats = this.getEvenThreats(this.myID);
+      long oppOddThreats = this.getOddThreats(oppID);
+      long oppEvenThreats = this.getEvenThreats(oppID);
       boolean scrapeOkay = true;
       //neither player can have no threats
-      if (myOddThreats.isEmpty() && myEvenThreats.isEmpty() &&
-            oppOddThreats.isEmpty() && oppEvenThreats.isEmpty()) {
+      if (myOddThreats == 0 && myEvenThreats == 0 &&
+            oppOddThreats == 0 && oppEvenThreats == 0) {
          if (this.myID == 1) {
-            this.scrapeToMakeOddThreat(myID);//TODO make this more efficient
-            this.scrapeToMakeEvenThreat(myID);
-            this.scrapeToMakeOddThreat(oppID);
-            this.scrapeToMakeEvenThreat(oppID);
+            candidates = this.scrapeToMakeOddThreat(candidates, myID);
+            candidates = this.scrapeToMakeEvenThreat(candidates, myID);
+            candidates = this.scrapeToMakeOddThreat(candidates, oppID);
+            candidates = this.scrapeToMakeEvenThreat(candidates, oppID);
          } else {
-            this.scrapeToMakeOddThreat(oppID);
-            this.scrapeToMakeEvenThreat(oppID);
-            this.scrapeToMakeOddThreat(myID);//TODO make this more efficient
-            this.scrapeToMakeEvenThreat(myID);
+            candidates = this.scrapeToMakeOddThreat(candidates, oppID);
+            candidates = this.scrapeToMakeEvenThreat(candidates, oppID);
+            candidates = this.scrapeToMakeOddThreat(candidates, myID);
+            candidates = this.scrapeToMakeEvenThreat(candidates, myID);
          }
          scrapeOkay = false;
       }//each player can have at most one type of threat
-      else if (!myOddThreats.isEmpty() && !myEvenThreats.isEmpty()) {
+      else if (myOddThreats != 0 && myEvenThreats != 0) {
          scrapeOkay = false;
-      } else if (!oppOddThreats.isEmpty() && !oppEvenThreats.isEmpty()) {
+      } else if (oppOddThreats != 0 && oppEvenThreats != 0) {
          scrapeOkay = false;
       }
       if (scrapeOkay) {
-         if (oppOddThreats.isEmpty() && oppEvenThreats.isEmpty()) {
-            this.scrapeForOtherThreat(myOddThreats, myEvenThreats, myID);
-         } else if (myOddThreats.isEmpty() && myEvenThreats.isEmpty()) {
-            this.scrapeForOtherThreat(oppOddThreats, oppEvenThreats, oppID);
+         if (oppOddThreats == 0 && oppEvenThreats == 0) {
+            candidates = this.scrapeForOtherThreat(candidates, myOddThreats,
+                  myEvenThreats, myID);
+         } else if (myOddThreats == 0 && myEvenThreats == 0) {
+            candidates = this.scrapeForOtherThreat(candidates, oppOddThreats,
+                  oppEvenThreats, oppID);
          } else {
             if (this.myID == 1) {
-               if (oppOddThreats.size() > 0) {
-                  if (myEvenThreats.isEmpty()) {
-                     this.scrapeToMakeEvenThreat(myID);
+               if (oppOddThreats != 0) {
+                  if (myEvenThreats == 0) {
+                     candidates = this.scrapeToMakeEvenThreat(candidates, myID);
                   } else {
-                     this.scrapeAgainstAlmostWins(myID);
+                     candidates =
+                           this.scrapeAgainstAlmostWins(candidates, myID);
                   }
-               } else if (oppEvenThreats.size() > 0) {
-                  if (myOddThreats.isEmpty()) {
-                     this.scrapeToMakeOddThreat(myID);
+               } else if (oppEvenThreats != 0) {
+                  if (myOddThreats == 0) {
+                     candidates = this.scrapeToMakeOddThreat(candidates, myID);
                   } else {
-                     this.scrapeAgainstAlmostWins(myID);
+                     candidates =
+                           this.scrapeAgainstAlmostWins(candidates, myID);
                   }
                }
             } else if (this.myID == 2) {
-               if (oppOddThreats.size() > 0) {
-                  if (myOddThreats.isEmpty()) {
-                     this.scrapeToMakeOddThreat(myID);
+               if (oppOddThreats != 0) {
+                  if (myOddThreats == 0) {
+                     candidates = this.scrapeToMakeOddThreat(candidates, myID);
                   } else {
-                     this.scrapeAgainstAlmostWins(myID);
+                     candidates =
+                           this.scrapeAgainstAlmostWins(candidates, myID);
                   }
-               } else if (oppEvenThreats.size() > 0) {
-                  if (myEvenThreats.isEmpty()) {
-                     this.scrapeToMakeEvenThreat(myID);
+               } else if (oppEvenThreats != 0) {
+                  if (myEvenThreats == 0) {
+                     candidates = this.scrapeToMakeEvenThreat(candidates, myID);
                   } else {
                      //this is the one different case
-                     this.scrapeAgainstAlmostWins(oppID);
+                     candidates =
+                           this.scrapeAgainstAlmostWins(candidates, oppID);
                   }
                }
             }
          }
       }
+      return candidates;
    }
    
-   private Map<Integer, Integer> getOddThreats(int id) {
-      List<Integer>[] freeLocs = super.getFreeLocations();
-      Map<Integer, Integer> oddThreats = new HashMap<Integer, Integer>();
-      for (int row = 1; row < freeLocs.length; row = row + 2) {
-         for (Integer column : freeLocs[row]) {
-            if (super.positionToWin(row, column, id)) {
-               oddThreats.put(column, row);
-            }
-         }
-      }
-      return oddThreats;
+   /**
+    * @return  the threats of the field last given to parse
+    */
+   ThreatAnalyzer getThreats() {
+      return this.threats;
    }
    
-   private Map<Integer, Integer> getEvenThreats(int id) {
-      List<Integer>[] freeLocs = super.getFreeLocations();
-      Map<Integer, Integer> evenThreats = new HashMap<Integer, Integer>();
-      for (int row = 0; row < freeLocs.length; row = row + 2) {
-         for (Integer column : freeLocs[row]) {
-            if (super.positionToWin(row, column, id)) {
-               evenThreats.put(column, row);
-            }
-         }
-      }
-      return evenThreats;
+   /**
+    * @param id   the id of a player
+    * @return  a mask of the free locations in odd rows that are in the
+    *             position to win for the player with the given id
+    */
+   private long getOddThreats(int id) {
+      return this.threats.oddThreats(id);
+   }
+   
+   /**
+    * @param id   the id of a player
+    * @return  a mask of the free locations in even rows that are in the
+    *             position to win for the player with the given id
+    */
+   private long getEvenThreats(int id) {
+      return this.threats.evenThreats(id);
    }
    
    /**
     * @Precondition: only one of oddThreats or evenThreats can be empty;
     *                if oddThreats & evenThreats are empty or neither are,
     *                   throws an IllegalArgumentException
+    * @param candidates the columns left to choose from
     * @param oddThreats
     * @param evenThreats
     * @param id
+    * @return  the candidates that are kept
     */
-   private void scrapeForOtherThreat(Map<Integer, Integer> oddThreats,
-         Map<Integer, Integer> evenThreats, int id) {
-      if ((oddThreats.isEmpty() && evenThreats.isEmpty()) ||
-          (!oddThreats.isEmpty() && !evenThreats.isEmpty())) {
+   private int scrapeForOtherThreat(int candidates, long oddThreats,
+         long evenThreats, int id) {
+      if ((oddThreats == 0 && evenThreats == 0) ||
+          (oddThreats != 0 && evenThreats != 0)) {
          throw new IllegalArgumentException();
       }
-      if (oddThreats.isEmpty()) {
-         this.scrapeToMakeEvenThreat(id);
-      } else if (evenThreats.isEmpty()) {
-         this.scrapeToMakeOddThreat(id);
+      if (oddThreats == 0) {
+         return this.scrapeToMakeEvenThreat(candidates, id);
       }
+      return this.scrapeToMakeOddThreat(candidates, id);
    }
    
-   private void scrapeToMakeOddThreat(int id) {
-      List<Integer>[] freeLocs = super.getFreeLocations();
-      for (int row = freeLocs.length - 1; row >= 0; row = row - 2) {
-         Set<Integer> columns = new HashSet<Integer>();
-         for (Integer column : freeLocs[row]) {
-            List<Integer> availableLocs = this.getAvailableLocs(row, column, id);
-            for (Integer availableCol : availableLocs) {
-               columns.add(availableCol);
-            }
-         }
-         this.scrapeLocations(columns);
+   int scrapeToMakeOddThreat(int candidates, int id) {
+      Bitboard board = super.getBoard();
+      for (int row = board.rows() - 1; row >= 0; row = row - 2) {
+         int columns = this.threats.columnsMakingThreats(id, candidates,
+               board.rowMask(row));
+         candidates = CandidateMoves.retain(candidates, columns);
       }
+      return candidates;
    }
    
-   private void scrapeToMakeEvenThreat(int id) {
-      List<Integer>[] freeLocs = super.getFreeLocations();
-      for (int row = freeLocs.length - 2; row >= 0; row = row - 2) {
-         Set<Integer> columns = new HashSet<Integer>();
-         for (Integer column : freeLocs[row]) {
-            List<Integer> availableLocs = this.getAvailableLocs(row, column, id);
-            for (Integer availableCol : availableLocs) {
-               columns.add(availableCol);
-            }
-         }
-         this.scrapeLocations(columns);
+   int scrapeToMakeEvenThreat(int candidates, int id) {
+      Bitboard board = super.getBoard();
+      for (int row = board.rows() - 2; row >= 0; row = row - 2) {
+         int columns = this.threats.columnsMakingThreats(id, candidates,
+               board.rowMask(row));
+         candidates = CandidateMoves.retain(candidates, columns);
       }
+      return candidates;
    }
    
    /**
     * Looks at the available locations and picks the one with the most possible
     *    wins for the given id
     * 
-    * @param id   the id of the player we are considering
+    * @param candidates the columns left to choose from
     * @return  the column of the best location
     */
-   private int bestAvailableLocation() {
+   private int bestAvailableLocation(int candidates) {
       int maxWins = -1;
       int maxColumn = -1;
-      for (Integer column : this.availableMoves.keySet()) {
-         int wins = this.getPossibleWins(this.availableMoves.get(column),
-               column).size();
+      for (int left = candidates; left != 0; left &= left - 1) {
+         int column = Integer.numberOfTrailingZeros(left);
+         int wins = super.numPossibleWins(this.availableMoves.row(column),
+               column);
          if (wins > maxWins) {
             maxWins = wins;
             maxColumn = column;
@@ -331,29 +494,4 @@ public class TrapBot extends BotStarter {
       }
       return maxColumn;
    }
-   
-   /**
-    * @Precondition: columns not null; otherwise,
-    *                   throws IllegalArgumentException
-    *                
-    * @Postcondition:   availableLocations field keyset only contains the given
-    *                      columns
-    *                   if size of columns is 0, does not change
-    *                      availableLocations
-    * @param columns the columns we want to keep
-    */
-   private void scrapeLocations(Set<Integer> columns) {
-      if (columns == null) {
-         throw new IllegalArgumentException();
-      }
-      if (columns.size() > 0) {
-         for (Iterator<Integer> i = this.availableMoves.keySet().iterator();
-               i.hasNext();) {
-            Integer column = i.next();
-            if (!columns.contains(column)) {
-               i.remove();;
-            }
-         }
-      }
-   }
 }
@@ -0,0 +1,155 @@
+package bot;
+
+import java.io.PrintStream;
+
+/**
+ * TurnProfiler class
+ *
+ * Keeps track of how a bot's turns go, stage by stage: how long each stage
+ *    takes, how many candidate columns (see CandidateMoves) there are before
+ *    and after it, and which stage decided the move.
+ *
+ * Some things to note when interacting with this class.
+ *    A turn is startTurn, then stage once for each stage that is run (in
+ *       order), then decided. A stage's time is the time since the stage
+ *       before it ended (or the turn started).
+ *    The stage that decided a move is the first one that left a single
+ *       candidate out of several; if none did, it is the stage given to
+ *       decided (the one that chose among the candidates left).
+ *    Times are kept in LatencyHistograms, so nothing is allocated during a
+ *       turn. A bot that is not profiled keeps no TurnProfiler at all, so
+ *       all it pays is a null check per stage.
+ *    The report goes to the stream the profiler was made with, never to
+ *       System.out: the engine reads our moves from there.
+ *
+ * @version 10/16/26
+ */
+public class TurnProfiler {
+
+   private final String[] stages;
+   private final PrintStream out;
+   private final LatencyHistogram[] times;
+   private final LatencyHistogram turnTimes = new LatencyHistogram();
+   //by stage: the number of runs, the candidates before and after (summed)
+   //and the number of runs that took candidates away
+   private final long[] runs;
+   private final long[] before;
+   private final long[] after;
+   private final long[] narrowed;
+   //by stage: the number of moves it decided
+   private final long[] decided;
+
+   private long turnStart;
+   private long stageStart;
+   //the stage that decided this turn's move so far (-1 for none yet)
+   private int deciding;
+
+   /**
+    * @param stages  the names of the stages, by number
+    * @param out     where reports go (e.g. System.err)
+    */
+   public TurnProfiler(String[] stages, PrintStream out) {
+      this.stages = stages.clone();
+      this.out = out;
+      this.times = new LatencyHistogram[stages.length];
+      for (int i = 0; i < stages.length; i++) {
+         this.times[i] = new LatencyHistogram();
+      }
+      this.runs = new long[stages.length];
+      this.before = new long[stages.length];
+      this.after = new long[stages.length];
+      this.narrowed = new long[stages.length];
+      this.decided = new long[stages.length];
+   }
+
+   public void startTurn() {
+      this.turnStart = System.nanoTime();
+      this.stageStart = this.turnStart;
+      this.deciding = -1;
+   }
+
+   /**
+    * @Precondition: startTurn was called this turn
+    * @param stage      the number of the stage that just ended
+    * @param candidates the candidate columns before the stage
+    * @param kept       the candidate columns after it
+    */
+   public void stage(int stage, int candidates, int kept) {
+      long now = System.nanoTime();
+      this.times[stage].record(now - this.stageStart);
+      this.stageStart = now;
+      int sizeBefore = CandidateMoves.size(candidates);
+      int sizeAfter = CandidateMoves.size(kept);
+      this.runs[stage]++;
+      this.before[stage] += sizeBefore;
+      this.after[stage] += sizeAfter;
+      if (sizeAfter < sizeBefore) {
+         this.narrowed[stage]++;
+         if (sizeAfter == 1 && this.deciding < 0) {
+            this.deciding = stage;
+         }
+      }
+   }
+
+   /**
+    * @Precondition: startTurn was called this turn
+    * @param stage   the stage that chose the move if no stage left a single
+    *                   candidate
+    */
+   public void decided(int stage) {
+      this.turnTimes.record(System.nanoTime() - this.turnStart);
+      this.decided[this.deciding < 0 ? stage : this.deciding]++;
+   }
+
+   /**
+    * @return  the number of turns decided since the last reset
+    */
+   public long getTurns() {
+      return this.turnTimes.getCount();
+   }
+
+   /**
+    * Writes a table of the stages to the profiler's stream: times in
+    *    microseconds, the mean number of candidates before and after, how
+    *    often a stage took candidates away and how many moves it decided.
+    */
+   public void report() {
+      this.out.printf("%d turns, %.1f us per turn (p50 %.1f, p99 %.1f, " +
+            "max %.1f)%n", this.getTurns(), this.turnTimes.getMean() / 1e3,
+            micros(this.turnTimes, 50), micros(this.turnTimes, 99),
+            this.turnTimes.getMax() / 1e3);
+      this.out.printf("%-24s %6s %8s %8s %8s %8s %6s %6s %6s %6s%n", "stage",
+            "runs", "mean us", "p50 us", "p99 us", "max us", "before",
+            "after", "narrow", "chose");
+      for (int i = 0; i < this.stages.length; i++) {
+         LatencyHistogram times = this.times[i];
+         long runs = Math.max(this.runs[i], 1);
+         this.out.printf("%-24s %6d %8.2f %8.2f %8.2f %8.2f %6.2f %6.2f " +
+               "%6d %6d%n", this.stages[i], this.runs[i],
+               times.getMean() / 1e3, micros(times, 50), micros(times, 99),
+               times.getMax() / 1e3, (double) this.before[i] / runs,
+               (double) this.after[i] / runs, this.narrowed[i],
+               this.decided[i]);
+      }
+      this.out.flush();
+   }
+
+   private static double micros(LatencyHistogram times, double percentile) {
+      return times.getValueAtPercentile(percentile) / 1e3;
+   }
+
+   /**
+    * @Postcondition: nothing is recorded
+    */
+   public void reset() {
+      this.turnTimes.reset();
+      for (int i = 0; i < this.stages.length; i++) {
+         this.times[i].reset();
+         this.runs[i] = 0;
+         this.before[i] = 0;
+         this.after[i] = 0;
+         this.narrowed[i] = 0;
+         this.decided[i] = 0;
+      }
+   }
+}
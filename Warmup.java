@@ -0,0 +1,282 @@
+package bot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+/**
+ * Warmup class
+ *
+ * Gets the JIT to compile a bot's code before its first real move: the
+ *    bytecode of a new JVM is interpreted until it has run often enough,
+ *    so without a warm-up the first moves of a game are the slowest by far.
+ *
+ * Some things to note when interacting with this class.
+ *    The warm-up plays games between two bots of its own through the
+ *       engine's protocol, so everything a real move runs gets hot: reading
+ *       commands, parsing the field, every step of makeTurn and the endgame
+ *       solver. Its bots are thrown away afterwards; the bot that plays for
+ *       real keeps nothing from the warm-up but the compiled code. They run
+ *       the same code as the bot that plays for real, but with a small
+ *       table or pool of nodes (see newBot), since the games are short.
+ *    The games are a fixed corpus: the same random openings (from SEED)
+ *       every time, so a warm-up always plays the same positions.
+ *    It plays until its time is up, the corpus runs out or it is stopped,
+ *       and it looks at those between moves. Stopping it also cancels the
+ *       move in progress (see BotStarter.cancel), so it takes about a
+ *       millisecond (a few at worst). BotParser runs it on a thread of its
+ *       own while it waits for the engine, and stops it when the first move
+ *       is asked for: all the clock pays for is that cut-short move.
+ *
+ * Usage: java bot.Warmup [millis=N] [bot=trap|search|mcts] [rows=N]
+ *          [columns=N] [connect=N]
+ *    warms up and exits; the cds build profile runs it under
+ *    -XX:ArchiveClassesAtExit to find the classes to put in the
+ *    class-data-sharing archive (see README.md).
+ *
+ * @version 10/16/26
+ */
+public class Warmup implements Runnable {
+
+   //how long a warm-up lasts (at most) by default
+   public static final long DEFAULT_MILLIS = 1000;
+   //the openings of the games come from here
+   private static final long SEED = 20161016L;
+   //the most games in the corpus
+   private static final int MAX_GAMES = 1000;
+   private static final int OPENING_PLIES = 4;
+   //the warm-up's clock is short, so bots that think for as long as they
+   //have time (see SearchBot) play quick games
+   private static final int TIMEBANK = 100;
+   private static final int TIME_PER_MOVE = 10;
+   //the warm-up's bots only need room for its short games
+   private static final int TABLE_MEGABYTES = 1;
+   private static final int NODES = 1 << 14;
+
+   private final Referee.BotFactory bots;
+   private final int rows;
+   private final int columns;
+   private final int connect;
+   private final long millis;
+   private volatile boolean stopped;
+   //the bots playing, by id; null until they are made
+   private volatile BotStarter[] players;
+   private Thread thread;
+   private int games;
+   private int moves;
+
+   /**
+    * @param bots    makes the bots of the warm-up
+    * @param rows
+    * @param columns
+    * @param connect the number of discs in a line that wins the game
+    * @param millis  how long to warm up for (at most)
+    */
+   public Warmup(Referee.BotFactory bots, int rows, int columns, int connect,
+         long millis) {
+      this.bots = bots;
+      this.rows = rows;
+      this.columns = columns;
+      this.connect = connect;
+      this.millis = millis;
+   }
+
+   /**
+    * @param name trap, search, ponder or mcts (see Referee.newBot)
+    * @return  makes warm-up bots of that kind: the same bots Referee.newBot
+    *             makes, but with a small table or pool of nodes, and never
+    *             pondering
+    */
+   public static Referee.BotFactory newBot(String name) {
+      if (name.equals("search") || name.equals("ponder")) {
+         return new Referee.BotFactory() {
+            public BotStarter newBot(int rows, int columns, int connect) {
+               return new SearchBot(rows, columns, connect, TABLE_MEGABYTES,
+                     1);
+            }
+         };
+      } else if (name.equals("mcts")) {
+         return new Referee.BotFactory() {
+            public BotStarter newBot(int rows, int columns, int connect) {
+               return new MctsBot(rows, columns, connect, NODES, 1);
+            }
+         };
+      }
+      return Referee.newBot(name);
+   }
+
+   /**
+    * Warms up on a thread of its own.
+    */
+   public void start() {
+      this.thread = new Thread(this, "warmup");
+      this.thread.setDaemon(true);
+      this.thread.start();
+   }
+
+   /**
+    * Cancels the warm-up's move in progress (see BotStarter.cancel) instead
+    *    of waiting for it to be thought through.
+    * @Postcondition: the warm-up is over (when it was started, its thread
+    *                 has ended)
+    */
+   public void stop() {
+      this.stopped = true;
+      //either the bots are seen here or run sees stopped before a move
+      BotStarter[] players = this.players;
+      if (players != null) {
+         players[1].cancel();
+         players[2].cancel();
+      }
+      if (this.thread == null) {
+         return;
+      }
+      boolean interrupted = false;
+      while (this.thread.isAlive()) {
+         try {
+            this.thread.join();
+         } catch (InterruptedException e) {
+            interrupted = true;
+         }
+      }
+      if (interrupted) {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   /**
+    * Plays the games of the corpus until the time is up or the warm-up is
+    *    stopped, on this thread.
+    */
+   public void run() {
+      long end = System.nanoTime() + this.millis * 1000000;
+      ByteArrayOutputStream answers = new ByteArrayOutputStream();
+      BotStarter[] bots = new BotStarter[3];
+      BotParser[] parsers = new BotParser[3];
+      for (int id = 1; id <= 2; id++) {
+         bots[id] = this.bots.newBot(this.rows, this.columns, this.connect);
+         //commands are handed to the parsers one at a time, never read
+         parsers[id] = new BotParser(bots[id],
+               new ByteArrayInputStream(new byte[0]), answers);
+         parsers[id].handle("settings timebank " + TIMEBANK);
+         parsers[id].handle("settings time_per_move " + TIME_PER_MOVE);
+         parsers[id].handle("settings your_botid " + id);
+      }
+      this.players = bots;
+      Bitboard board = new Bitboard(this.rows, this.columns, this.connect);
+      try {
+         while (this.games < MAX_GAMES && !this.isOver(end)) {
+            this.playGame(board, parsers, answers, SEED + this.games, end);
+            bots[1].gameOver();
+            bots[2].gameOver();
+            this.games++;
+         }
+      } finally {
+         bots[1].stopPondering();
+         bots[2].stopPondering();
+         bots[1].close();
+         bots[2].close();
+      }
+   }
+
+   private boolean isOver(long end) {
+      return this.stopped || System.nanoTime() >= end;
+   }
+
+   /**
+    * Plays one game of the corpus, until it is over or the warm-up is.
+    *
+    * @param end  the System.nanoTime at which the warm-up is over
+    */
+   private void playGame(Bitboard board, BotParser[] parsers,
+         ByteArrayOutputStream answers, long opening, long end) {
+      board.clear();
+      Random random = new Random(opening);
+      int id = 1;
+      for (int i = 0; i < OPENING_PLIES; i++) {
+         int col = random.nextInt(this.columns);
+         if (board.heightOf(col) < this.rows) {
+            board.play(col, id);
+            if (board.isWin(id)) {
+               return;
+            }
+            id = 3 - id;
+         }
+      }
+      while (board.legalMoves() != 0 && !this.isOver(end)) {
+         String field = board.toField();
+         parsers[1].handle("update game field " + field);
+         parsers[2].handle("update game field " + field);
+         answers.reset();
+         parsers[id].handle("action move " + TIMEBANK);
+         int col = column(answers.toString());
+         if (col < 0 || col >= this.columns ||
+               board.heightOf(col) >= this.rows) {
+            return;//the game cannot go on
+         }
+         board.play(col, id);
+         this.moves++;
+         if (board.isWin(id)) {
+            return;
+         }
+         id = 3 - id;
+      }
+   }
+
+   /**
+    * @param answer  what a bot answered to "action move"
+    * @return  the column of a place_disc answer; otherwise, -1
+    */
+   private static int column(String answer) {
+      answer = answer.trim();
+      if (!answer.startsWith("place_disc ")) {
+         return -1;
+      }
+      try {
+         return Integer.parseInt(answer.substring("place_disc ".length()));
+      } catch (NumberFormatException e) {
+         return -1;
+      }
+   }
+
+   /**
+    * @return  the number of games played (or started) so far
+    */
+   public int getGames() {
+      return this.games;
+   }
+
+   /**
+    * @return  the number of moves played so far
+    */
+   public int getMoves() {
+      return this.moves;
+   }
+
+   public static void main(String[] args) {
+      long millis = DEFAULT_MILLIS;
+      String name = "trap";
+      int rows = 6;
+      int columns = 7;
+      int connect = WinningLines.STANDARD_LENGTH;
+      for (String arg : args) {
+         String value = arg.substring(arg.indexOf('=') + 1);
+         if (arg.startsWith("millis=")) {
+            millis = Long.parseLong(value);
+         } else if (arg.startsWith("bot=")) {
+            name = value;
+         } else if (arg.startsWith("rows=")) {
+            rows = Integer.parseInt(value);
+         } else if (arg.startsWith("columns=")) {
+            columns = Integer.parseInt(value);
+         } else if (arg.startsWith("connect=")) {
+            connect = Integer.parseInt(value);
+         }
+      }
+      Warmup warmup = new Warmup(newBot(name), rows, columns,
+            connect, millis);
+      warmup.run();
+      System.err.println(warmup.getGames() + " games, " +
+            warmup.getMoves() + " moves");
+   }
+}
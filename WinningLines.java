@@ -0,0 +1,259 @@
+package bot;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * WinningLines class
+ *
+ * An immutable index of every winning line in a field of a given size:
+ *    lines of four in the standard game, or of any other length.
+ *    It is built once per size and length and shared by every bot, so
+ *    finding the lines through a location never allocates.
+ *
+ * Some things to note when interacting with this class.
+ *    Lines are identified by an int from 0 to size() - 1.
+ *    The locations in a line are numbered 0 to length() - 1 in the direction
+ *       of the line
+ *       (left to right, bottom to top, or along the diagonal).
+ *    Each line also has a Bitboard mask of its locations so that the discs
+ *       of a player in a line can be counted with Long.bitCount.
+ *    To go through the lines of a location without allocating:
+ *       for (int i = 0; i < lines.numLines(row, col); i++) {
+ *          int line = lines.line(row, col, i);
+ *          ...
+ *       }
+ *
+ * A standard 6 x 7 field has 69 lines:
+ *    24 horizontal, 21 vertical and 24 diagonal.
+ *
+ * @version 10/16/26
+ */
+public final class WinningLines {
+
+   //number of locations in a line of the standard game
+   public static final int STANDARD_LENGTH = 4;
+
+   private static final WinningLines STANDARD =
+         new WinningLines(6, 7, STANDARD_LENGTH);
+   //every other table made so far, by rows, columns and length
+   private static final ConcurrentMap<Integer, WinningLines> TABLES =
+         new ConcurrentHashMap<Integer, WinningLines>();
+
+   private final int rows;
+   private final int columns;
+   //number of locations in a line
+   private final int length;
+   private final int size;
+   //location (row * columns + column) of each location of each line:
+   //   the locations of line l are at l * length to (l + 1) * length - 1
+   private final int[] lineCells;
+   //Bitboard mask of each line
+   private final long[] lineMasks;
+   //lines through location c are cellLines[cellStart[c]] to
+   //   cellLines[cellStart[c + 1] - 1]
+   private final int[] cellStart;
+   private final int[] cellLines;
+   //for each entry of cellLines, the locations of the line that come before
+   //   and after the location in the direction of the line
+   private final long[] beforeMasks;
+   private final long[] afterMasks;
+
+   /**
+    * @param rows
+    * @param columns
+    * @return  the lines of four of a field of the given size
+    */
+   public static WinningLines forSize(int rows, int columns) {
+      return forSize(rows, columns, STANDARD_LENGTH);
+   }
+
+   /**
+    * @param rows
+    * @param columns
+    * @param length  the number of locations in a line
+    * @return  the lines of a field of the given size; each table is built
+    *             once and shared
+    */
+   public static WinningLines forSize(int rows, int columns, int length) {
+      if (rows == STANDARD.rows && columns == STANDARD.columns &&
+            length == STANDARD.length) {
+         return STANDARD;
+      }
+      Integer key = (rows << 16) | (columns << 8) | length;
+      WinningLines lines = TABLES.get(key);
+      if (lines == null) {
+         lines = new WinningLines(rows, columns, length);
+         WinningLines built = TABLES.putIfAbsent(key, lines);
+         if (built != null) {
+            lines = built;//another thread built it first
+         }
+      }
+      return lines;
+   }
+
+   private WinningLines(int rows, int columns, int length) {
+      this.rows = rows;
+      this.columns = columns;
+      this.length = length;
+      //row and column steps of horizontal, vertical, left diagonal and right
+      //diagonal lines, going left to right and bottom to top
+      int[][] directions = {{0, 1}, {-1, 0}, {1, 1}, {-1, 1}};
+      int count = 0;
+      for (int[] direction : directions) {
+         count += this.numStarts(direction[0], direction[1]);
+      }
+      this.size = count;
+      this.lineCells = new int[count * length];
+      this.lineMasks = new long[count];
+      Bitboard board = new Bitboard(rows, columns);
+      int[] linesPerCell = new int[rows * columns];
+      int line = 0;
+      for (int[] direction : directions) {
+         for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < columns; col++) {
+               if (this.isStart(row, col, direction[0], direction[1])) {
+                  for (int i = 0; i < length; i++) {
+                     int r = row + direction[0] * i;
+                     int c = col + direction[1] * i;
+                     this.lineCells[line * length + i] = r * columns + c;
+                     this.lineMasks[line] |= board.cell(r, c);
+                     linesPerCell[r * columns + c]++;
+                  }
+                  line++;
+               }
+            }
+         }
+      }
+      this.cellStart = new int[rows * columns + 1];
+      for (int cell = 0; cell < rows * columns; cell++) {
+         this.cellStart[cell + 1] = this.cellStart[cell] + linesPerCell[cell];
+      }
+      this.cellLines = new int[count * length];
+      this.beforeMasks = new long[count * length];
+      this.afterMasks = new long[count * length];
+      int[] filled = new int[rows * columns];
+      for (line = 0; line < count; line++) {
+         for (int i = 0; i < length; i++) {
+            int cell = this.lineCells[line * length + i];
+            int entry = this.cellStart[cell] + filled[cell]++;
+            this.cellLines[entry] = line;
+            for (int j = 0; j < length; j++) {
+               int other = this.lineCells[line * length + j];
+               long bit = board.cell(other / columns, other % columns);
+               if (j < i) {
+                  this.beforeMasks[entry] |= bit;
+               } else if (j > i) {
+                  this.afterMasks[entry] |= bit;
+               }
+            }
+         }
+      }
+   }
+
+   private int numStarts(int rowDiff, int colDiff) {
+      int starts = 0;
+      for (int row = 0; row < this.rows; row++) {
+         for (int col = 0; col < this.columns; col++) {
+            if (this.isStart(row, col, rowDiff, colDiff)) {
+               starts++;
+            }
+         }
+      }
+      return starts;
+   }
+
+   private boolean isStart(int row, int col, int rowDiff, int colDiff) {
+      int endRow = row + rowDiff * (this.length - 1);
+      int endCol = col + colDiff * (this.length - 1);
+      return endRow >= 0 && endRow < this.rows &&
+            endCol >= 0 && endCol < this.columns;
+   }
+
+   /**
+    * @return  the number of lines in the field
+    */
+   public int size() {
+      return this.size;
+   }
+
+   public int rows() {
+      return this.rows;
+   }
+
+   public int columns() {
+      return this.columns;
+   }
+
+   /**
+    * @return  the number of locations in a line
+    */
+   public int length() {
+      return this.length;
+   }
+
+   /**
+    * @param row
+    * @param col
+    * @return  the number of lines that go through the given location
+    */
+   public int numLines(int row, int col) {
+      int cell = row * this.columns + col;
+      return this.cellStart[cell + 1] - this.cellStart[cell];
+   }
+
+   /**
+    * @Precondition: 0 <= i < numLines(row, col)
+    * @param row
+    * @param col
+    * @param i
+    * @return  the id of the i-th line through the given location
+    */
+   public int line(int row, int col, int i) {
+      return this.cellLines[this.cellStart[row * this.columns + col] + i];
+   }
+
+   /**
+    * @param line
+    * @param i    0 to length() - 1
+    * @return  the row of the i-th location in the line
+    */
+   public int row(int line, int i) {
+      return this.lineCells[line * this.length + i] / this.columns;
+   }
+
+   /**
+    * @param line
+    * @param i    0 to length() - 1
+    * @return  the column of the i-th location in the line
+    */
+   public int column(int line, int i) {
+      return this.lineCells[line * this.length + i] % this.columns;
+   }
+
+   /**
+    * @param line
+    * @return  the Bitboard mask of the locations in the line
+    */
+   public long mask(int line) {
+      return this.lineMasks[line];
+   }
+
+   /**
+    * @Precondition: 0 <= i < numLines(row, col)
+    * @return  the locations of the i-th line through the given location that
+    *             come before it in the direction of the line
+    */
+   public long beforeMask(int row, int col, int i) {
+      return this.beforeMasks[this.cellStart[row * this.columns + col] + i];
+   }
+
+   /**
+    * @Precondition: 0 <= i < numLines(row, col)
+    * @return  the locations of the i-th line through the given location that
+    *             come after it in the direction of the line
+    */
+   public long afterMask(int row, int col, int i) {
+      return this.afterMasks[this.cellStart[row * this.columns + col] + i];
+   }
+}
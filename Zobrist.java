@@ -0,0 +1,42 @@
+package bot;
+
+import java.util.Random;
+
+/**
+ * Zobrist class
+ *
+ * Random keys used to hash a field.
+ *    Every (bit of a Bitboard, player) pair has its own key, and the hash of
+ *    a field is the XOR of the keys of its discs. Placing or taking back a
+ *    disc is then a single XOR, so the hash never has to be recomputed from
+ *    the whole field.
+ *
+ * The keys are generated from a fixed seed, so hashes are the same from one
+ *    run to the next.
+ *
+ * @version 10/16/26
+ */
+public final class Zobrist {
+
+   private static final long SEED = 0x5EEDC0FFEEL;
+   private static final long[] KEYS = new long[2 * Long.SIZE];
+
+   static {
+      Random random = new Random(SEED);
+      for (int i = 0; i < KEYS.length; i++) {
+         KEYS[i] = random.nextLong();
+      }
+   }
+
+   private Zobrist() {
+   }
+
+   /**
+    * @param bit  the index of a bit in a Bitboard (0 to 63)
+    * @param id   the id of a player (must be 1 or 2)
+    * @return  the key of a disc of that player at that bit
+    */
+   public static long key(int bit, int id) {
+      return KEYS[(id - 1) * Long.SIZE + bit];
+   }
+}
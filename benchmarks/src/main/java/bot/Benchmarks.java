@@ -0,0 +1,36 @@
+package bot;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Benchmarks class
+ *
+ * Runs the benchmarks with the GC profiler turned on, so every result comes
+ *    with how much it allocates (gc.alloc.rate.norm is bytes per operation)
+ *    next to its throughput.
+ *    Takes the same arguments as JMH itself, e.g.
+ *       java -jar benchmarks/target/benchmarks.jar TrapBotBenchmark.makeTurn
+ *
+ * @version 10/16/26
+ */
+public class Benchmarks {
+
+   public static void main(String[] args) throws Exception {
+      CommandLineOptions options = new CommandLineOptions(args);
+      if (options.shouldHelp() || options.shouldList() ||
+            options.shouldListProfilers() ||
+            options.shouldListResultFormats() ||
+            options.shouldListWithParams()) {
+         Main.main(args);//nothing to run
+         return;
+      }
+      new Runner(new OptionsBuilder()
+            .parent(options)
+            .addProfiler(GCProfiler.class)
+            .build()).run();
+   }
+}
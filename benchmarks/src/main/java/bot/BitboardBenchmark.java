@@ -0,0 +1,80 @@
+package bot;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * BitboardBenchmark class
+ *
+ * Times the line finding of Bitboard (the threats of both players and a check
+ *    for a win) on fields of different sizes and line lengths, given as
+ *    rows x columns x length. The standard 6x7x4 has a path of its own; the
+ *    others show what the general paths cost.
+ *    The positions are random games of a fixed seed, stopped before anyone
+ *    wins.
+ *
+ * @version 10/16/26
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitboardBenchmark {
+
+   private static final int POSITIONS = 1024;
+
+   @Param({"6x7x4", "7x8x4", "6x7x5"})
+   public String size;
+
+   private Bitboard[] positions;
+   private int next;
+
+   @Setup
+   public void setUp() {
+      String[] parts = this.size.split("x");
+      int rows = Integer.parseInt(parts[0]);
+      int columns = Integer.parseInt(parts[1]);
+      int connect = Integer.parseInt(parts[2]);
+      Random random = new Random(1);
+      this.positions = new Bitboard[POSITIONS];
+      for (int i = 0; i < POSITIONS; i++) {
+         Bitboard board = new Bitboard(rows, columns, connect);
+         int plies = random.nextInt(rows * columns / 2);
+         for (int id = 1; plies > 0 && board.legalMoves() != 0; plies--) {
+            int col = random.nextInt(columns);
+            if (board.heightOf(col) == rows) {
+               continue;
+            }
+            board.play(col, id);
+            if (board.isWin(id)) {
+               board.undo(col);
+               break;
+            }
+            id = 3 - id;
+         }
+         this.positions[i] = board;
+      }
+   }
+
+   @Benchmark
+   public long findLines() {
+      Bitboard board = this.positions[this.next];
+      this.next = (this.next + 1) % POSITIONS;
+      long lines = board.winningCells(1) ^ board.winningCells(2);
+      return board.isWin(1) ? ~lines : lines;
+   }
+}
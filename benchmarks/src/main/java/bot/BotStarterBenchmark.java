@@ -0,0 +1,104 @@
+package bot;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * BotStarterBenchmark class
+ *
+ * Times the queries TrapBot makes of BotStarter, over the positions of the
+ *    corpus (see Positions). Each invocation moves on to the next position,
+ *    so the benchmarks see the same mix of positions a game does.
+ *    The queries about a location are asked of every location of the field,
+ *    and reported per location.
+ *
+ * @version 10/16/26
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BotStarterBenchmark {
+
+   private static final int CELLS = Positions.ROWS * Positions.COLUMNS;
+
+   private String[] fields;
+   //the same fields as the engine's bytes
+   private byte[][] fieldBytes;
+   private TrapBot[] bots;
+   //a bot that parses the fields one after another, like during a game
+   private TrapBot parser;
+   private int next;
+
+   @Setup
+   public void setUp() {
+      this.fields = Positions.fields();
+      this.fieldBytes = new byte[this.fields.length][];
+      for (int i = 0; i < this.fields.length; i++) {
+         this.fieldBytes[i] = this.fields[i].getBytes(
+               StandardCharsets.US_ASCII);
+      }
+      this.bots = Positions.bots();
+      this.parser = new TrapBot(Positions.ROWS, Positions.COLUMNS);
+   }
+
+   private int nextIndex() {
+      int i = this.next;
+      this.next = i + 1 == this.fields.length ? 0 : i + 1;
+      return i;
+   }
+
+   @Benchmark
+   public void parse() {
+      this.parser.parse(this.fields[this.nextIndex()]);
+   }
+
+   @Benchmark
+   public void parseBytes() {
+      byte[] field = this.fieldBytes[this.nextIndex()];
+      this.parser.parse(field, 0, field.length);
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(CELLS)
+   public void getPossibleWins(Blackhole hole) {
+      TrapBot bot = this.bots[this.nextIndex()];
+      for (int row = 0; row < Positions.ROWS; row++) {
+         for (int col = 0; col < Positions.COLUMNS; col++) {
+            hole.consume(bot.getPossibleWins(row, col));
+         }
+      }
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(CELLS)
+   public void positionToWin(Blackhole hole) {
+      TrapBot bot = this.bots[this.nextIndex()];
+      for (int row = 0; row < Positions.ROWS; row++) {
+         for (int col = 0; col < Positions.COLUMNS; col++) {
+            hole.consume(bot.positionToWin(row, col, 1));
+            hole.consume(bot.positionToWin(row, col, 2));
+         }
+      }
+   }
+
+   @Benchmark
+   public Object getFreeLocations() {
+      return this.bots[this.nextIndex()].getFreeLocations();
+   }
+}
@@ -0,0 +1,59 @@
+package bot;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * EndgameSolverBenchmark class
+ *
+ * Times how long EndgameSolver takes to solve a position from scratch, for
+ *    positions played on from the corpus until the given number of
+ *    locations are free (see Positions.endgames).
+ *    The solver forgets everything before each position, so the times are
+ *    those of a cold start; in a game, each move starts warm from the last.
+ *
+ * @version 10/16/26
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EndgameSolverBenchmark {
+
+   @Param({"8", "12", "16"})
+   public int free;
+
+   private Bitboard[] positions;
+   private EndgameSolver solver;
+   private int next;
+
+   @Setup
+   public void setUp() {
+      List<Bitboard> endgames = Positions.endgames(this.free);
+      this.positions = endgames.toArray(new Bitboard[endgames.size()]);
+      this.solver = new EndgameSolver(Positions.ROWS, Positions.COLUMNS);
+   }
+
+   @Benchmark
+   public int solve() {
+      Bitboard position = this.positions[this.next];
+      this.next = this.next + 1 == this.positions.length ? 0 : this.next + 1;
+      this.solver.clear();
+      this.solver.solve(position, position.numDiscs() % 2 == 0 ? 1 : 2);
+      return this.solver.getBestMove();
+   }
+}
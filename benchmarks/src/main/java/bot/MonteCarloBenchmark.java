@@ -0,0 +1,83 @@
+package bot;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * MonteCarloBenchmark class
+ *
+ * Searches the fields of the corpus with MonteCarloSearch, in order, for a
+ *    fixed number of playouts each, and counts the playouts next to the
+ *    searches per second: playouts per second is how fast MctsBot thinks,
+ *    and how it goes up with the threads is how well the search scales.
+ *    Forced moves are answered without any playouts.
+ *
+ * @version 10/16/26
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MonteCarloBenchmark {
+
+   @Param({"1", "2"})
+   public int threads;
+
+   @Param({"2000"})
+   public int playouts;
+
+   private TrapBot[] bots;
+   private MonteCarloSearch search;
+   private TimeManager time;
+   private int next;
+
+   /**
+    * The counts of the searches, reported per second.
+    */
+   @State(Scope.Thread)
+   @AuxCounters(AuxCounters.Type.OPERATIONS)
+   public static class Counters {
+      public long playouts;
+
+      @Setup(Level.Iteration)
+      public void reset() {
+         this.playouts = 0;
+      }
+   }
+
+   @Setup
+   public void setUp() {
+      this.bots = Positions.bots();
+      this.search = new MonteCarloSearch(Positions.ROWS, Positions.COLUMNS,
+            WinningLines.STANDARD_LENGTH, MonteCarloSearch.DEFAULT_NODES,
+            this.threads);
+      this.search.setMaxPlayouts(this.playouts);
+      this.time = new TimeManager();
+   }
+
+   @Benchmark
+   public int search(Counters counters) {
+      TrapBot bot = this.bots[this.next];
+      this.next = this.next + 1 == this.bots.length ? 0 : this.next + 1;
+      //the playouts stop the search long before the clock does
+      this.time.startFixed(60 * 1000);
+      int column = this.search.bestMove(bot.getBoard(), bot.myID, this.time);
+      counters.playouts += this.search.getPlayouts();
+      return column;
+   }
+}
@@ -0,0 +1,94 @@
+package bot;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * NegamaxBenchmark class
+ *
+ * Searches the fields of the corpus to a fixed depth with Negamax, in order,
+ *    and counts the nodes and cutoffs next to the searches per second:
+ *    nodes / search is how much the move ordering saves, and
+ *    firstMoveCutoffs / cutoffs is how often the first move searched was
+ *    good enough (the closer to 1, the better the ordering).
+ *    The TranspositionTable is kept from one field to the next, as it is in
+ *    a game, and cleared whenever the corpus moves on to the next game.
+ *
+ * @version 10/16/26
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NegamaxBenchmark {
+
+   @Param({"8", "10"})
+   public int depth;
+
+   private TrapBot[] bots;
+   private TranspositionTable table;
+   private Negamax search;
+   private TimeManager time;
+   private int next;
+
+   /**
+    * The counts of the searches, reported per second.
+    */
+   @State(Scope.Thread)
+   @AuxCounters(AuxCounters.Type.OPERATIONS)
+   public static class Counters {
+      public long nodes;
+      public long cutoffs;
+      public long firstMoveCutoffs;
+
+      @Setup(Level.Iteration)
+      public void reset() {
+         this.nodes = 0;
+         this.cutoffs = 0;
+         this.firstMoveCutoffs = 0;
+      }
+   }
+
+   @Setup
+   public void setUp() {
+      this.bots = Positions.bots();
+      this.table = new TranspositionTable(SearchBot.DEFAULT_TABLE_MEGABYTES);
+      this.search = new Negamax(Positions.ROWS, Positions.COLUMNS,
+            WinningLines.STANDARD_LENGTH, this.table);
+      this.search.setMaxDepth(this.depth);
+      this.time = new TimeManager();
+   }
+
+   @Benchmark
+   public int search(Counters counters) {
+      TrapBot bot = this.bots[this.next];
+      this.next = this.next + 1 == this.bots.length ? 0 : this.next + 1;
+      Bitboard board = bot.getBoard();
+      //the depth stops the search long before the clock does
+      this.time.startFixed(60 * 1000);
+      int column = this.search.bestMove(board, bot.myID, this.time);
+      counters.nodes += this.search.getNodes();
+      counters.cutoffs += this.search.getCutoffs();
+      counters.firstMoveCutoffs += this.search.getFirstMoveCutoffs();
+      if (this.next == 0 ||
+            this.bots[this.next].getBoard().numDiscs() < board.numDiscs()) {
+         this.table.clear();//the next field is of another game
+      }
+      return column;
+   }
+}
@@ -0,0 +1,109 @@
+package bot;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Positions class
+ *
+ * The corpus the benchmarks run over: fields recorded from games between
+ *    TrapBot and SearchBot (after a few random opening moves), from the 8th
+ *    to the 30th ply. Each line of midgame.txt is one field in the engine's
+ *    format, and the fields of a game come one after another, so parsing them
+ *    in order is as incremental as it is during a real game.
+ *
+ * @version 10/16/26
+ */
+public class Positions {
+
+   public static final int ROWS = 6;
+   public static final int COLUMNS = 7;
+   private static final String CORPUS = "/midgame.txt";
+
+   /**
+    * @return  every field of the corpus, in the order they were recorded
+    */
+   public static String[] fields() {
+      InputStream in = Positions.class.getResourceAsStream(CORPUS);
+      if (in == null) {
+         throw new IllegalStateException("missing " + CORPUS);
+      }
+      List<String> fields = new ArrayList<String>();
+      try {
+         BufferedReader reader = new BufferedReader(
+               new InputStreamReader(in, "UTF-8"));
+         try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+               if (line.length() > 0) {
+                  fields.add(line);
+               }
+            }
+         } finally {
+            reader.close();
+         }
+      } catch (IOException e) {
+         throw new IllegalStateException(e);
+      }
+      return fields.toArray(new String[fields.size()]);
+   }
+
+   /**
+    * Plays on from every field of the corpus, with random moves that do not
+    *    end the game, until the given number of locations are free.
+    *    The moves come from a fixed seed, so the positions are the same
+    *    every run.
+    *
+    * @param free the number of free locations each position should have
+    * @return  the positions that could be played that far, each with the
+    *             player to move
+    */
+   public static List<Bitboard> endgames(int free) {
+      Random random = new Random(free);
+      List<Bitboard> endgames = new ArrayList<Bitboard>();
+      for (String field : fields()) {
+         TrapBot bot = new TrapBot(ROWS, COLUMNS);
+         bot.parse(field);
+         Bitboard board = new Bitboard(ROWS, COLUMNS);
+         board.copyFrom(bot.getBoard());
+         int id = board.numDiscs() % 2 == 0 ? 1 : 2;
+         while (Long.bitCount(board.freeMask()) > free) {
+            long moves = board.legalMoves() & ~board.winningCells(id) &
+                  ~(board.winningCells(3 - id) >>> 1);
+            if (moves == 0 || board.winningMoves(3 - id) != 0) {
+               break;//the game is about to end
+            }
+            int skip = random.nextInt(Long.bitCount(moves));
+            for (int i = 0; i < skip; i++) {
+               moves &= moves - 1;
+            }
+            board.play(board.column(Long.numberOfTrailingZeros(moves)), id);
+            id = 3 - id;
+         }
+         if (Long.bitCount(board.freeMask()) == free) {
+            endgames.add(board);
+         }
+      }
+      return endgames;
+   }
+
+   /**
+    * @return  a TrapBot for every field of the corpus that has parsed it and
+    *             is the player to move
+    */
+   public static TrapBot[] bots() {
+      String[] fields = fields();
+      TrapBot[] bots = new TrapBot[fields.length];
+      for (int i = 0; i < fields.length; i++) {
+         bots[i] = new TrapBot(ROWS, COLUMNS);
+         bots[i].parse(fields[i]);
+         bots[i].myID = bots[i].getBoard().numDiscs() % 2 == 0 ? 1 : 2;
+      }
+      return bots;
+   }
+}
@@ -0,0 +1,109 @@
+package bot;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * TrapBotBenchmark class
+ *
+ * Times each step of TrapBot.makeTurn on its own, and makeTurn as a whole,
+ *    over the positions of the corpus (see Positions).
+ *
+ * Each step is given all of the available moves of its position, and gives
+ *    back the ones it keeps without changing the bot, so the steps can be
+ *    run over and over on the same bots. The threats of a position are only
+ *    worked out once (see ThreatAnalyzer), so they are forgotten before
+ *    each invocation, like they would be in a new position during a game.
+ *
+ * @version 10/16/26
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrapBotBenchmark {
+
+   private TrapBot[] bots;
+   private int next;
+
+   @Setup
+   public void setUp() {
+      this.bots = Positions.bots();
+   }
+
+   private TrapBot nextBot() {
+      TrapBot bot = this.bots[this.next];
+      this.next = this.next + 1 == this.bots.length ? 0 : this.next + 1;
+      bot.getThreats().invalidate();
+      return bot;
+   }
+
+   @Benchmark
+   public long analyzeThreats() {
+      return this.nextBot().getThreats().threatsMadeBy(1, 0);
+   }
+
+   @Benchmark
+   public int scrapeToWin() {
+      TrapBot bot = this.nextBot();
+      return bot.scrapeToWin(bot.myID) + bot.scrapeToWin(3 - bot.myID);
+   }
+
+   @Benchmark
+   public int scrapeAgainstAlmostWins() {
+      TrapBot bot = this.nextBot();
+      return bot.scrapeAgainstAlmostWins(bot.availableMoves.mask(),
+            3 - bot.myID);
+   }
+
+   @Benchmark
+   public int scrapeThreats() {
+      TrapBot bot = this.nextBot();
+      return bot.scrapeThreats(bot.availableMoves.mask(), 3 - bot.myID);
+   }
+
+   @Benchmark
+   public int scrapeToMakeOddThreat() {
+      TrapBot bot = this.nextBot();
+      return bot.scrapeToMakeOddThreat(bot.availableMoves.mask(), bot.myID);
+   }
+
+   @Benchmark
+   public int scrapeToMakeEvenThreat() {
+      TrapBot bot = this.nextBot();
+      return bot.scrapeToMakeEvenThreat(bot.availableMoves.mask(), bot.myID);
+   }
+
+   @Benchmark
+   public int scrapeMiddleTraps() {
+      TrapBot bot = this.nextBot();
+      int candidates = bot.scrapeMiddleTraps(bot.availableMoves.mask(),
+            bot.myID);
+      return bot.scrapeMiddleTraps(candidates, 3 - bot.myID);
+   }
+
+   @Benchmark
+   public int scrapeStackTraps() {
+      TrapBot bot = this.nextBot();
+      int candidates = bot.scrapeStackTraps(bot.availableMoves.mask(),
+            bot.myID);
+      return bot.scrapeStackTraps(candidates, 3 - bot.myID);
+   }
+
+   @Benchmark
+   public int makeTurn() {
+      return this.nextBot().makeTurn();
+   }
+}
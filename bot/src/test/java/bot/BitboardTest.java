@@ -0,0 +1,138 @@
+package bot;
+
+import java.util.Random;
+
+/**
+ * BitboardTest class
+ *
+ * Checks isWin and winningCells against a brute-force scan of the field on
+ *    random positions, for fields of every shape the board accepts: the
+ *    standard game, other fields with lines of four (including columns of
+ *    32 bits or more, where a shift by two or three columns is past the end
+ *    of the long) and other lengths of line.
+ *
+ * Some things to note when interacting with this class.
+ *    It is a plain test class (public void test methods that throw an
+ *       AssertionError when a check fails), so surefire runs it without a
+ *       test framework.
+ *    The positions come from a fixed seed, so a failure can be reproduced.
+ */
+public class BitboardTest {
+
+   //{rows, columns, connect}
+   private static final int[][] SIZES = {
+         {6, 7, 4}, {7, 8, 4}, {5, 4, 4}, {20, 3, 4}, {21, 2, 4},
+         {31, 2, 4}, {63, 1, 4}, {6, 7, 3}, {6, 7, 5}, {9, 6, 5},
+         {31, 2, 3}, {63, 1, 6}};
+   private static final int BOARDS = 2000;
+   private static final long SEED = 20161016L;
+
+   public void testIsWin() {
+      Random random = new Random(SEED);
+      for (int[] size : SIZES) {
+         Bitboard board = new Bitboard(size[0], size[1], size[2]);
+         for (int i = 0; i < BOARDS; i++) {
+            fill(board, random);
+            for (int id = 1; id <= 2; id++) {
+               check(board.isWin(id) == hasLine(board, id),
+                     "isWin(" + id + ")", board);
+            }
+         }
+      }
+   }
+
+   public void testWinningCells() {
+      Random random = new Random(SEED + 1);
+      for (int[] size : SIZES) {
+         Bitboard board = new Bitboard(size[0], size[1], size[2]);
+         for (int i = 0; i < BOARDS; i++) {
+            fill(board, random);
+            for (int id = 1; id <= 2; id++) {
+               check(board.winningCells(id) == winningCells(board, id),
+                     "winningCells(" + id + ")", board);
+            }
+         }
+      }
+   }
+
+   /**
+    * Clears the board and drops a random number of discs of random players
+    *    into random columns.
+    */
+   private static void fill(Bitboard board, Random random) {
+      board.clear();
+      int discs = random.nextInt(board.rows() * board.columns() + 1);
+      for (int i = 0; i < discs; i++) {
+         int col = random.nextInt(board.columns());
+         if (board.heightOf(col) < board.rows()) {
+            board.play(col, 1 + random.nextInt(2));
+         }
+      }
+   }
+
+   /**
+    * @return  true if the player has connect discs in a row, found by
+    *             looking at every location and direction
+    */
+   private static boolean hasLine(Bitboard board, int id) {
+      for (int row = 0; row < board.rows(); row++) {
+         for (int col = 0; col < board.columns(); col++) {
+            if (board.get(row, col) == id && lineThrough(board, row, col,
+                  id)) {
+               return true;
+            }
+         }
+      }
+      return false;
+   }
+
+   /**
+    * @return  every free location that would give the player a line,
+    *             found by trying each one
+    */
+   private static long winningCells(Bitboard board, int id) {
+      long cells = 0L;
+      for (int row = 0; row < board.rows(); row++) {
+         for (int col = 0; col < board.columns(); col++) {
+            if (board.get(row, col) == 0 && lineThrough(board, row, col,
+                  id)) {
+               cells |= board.cell(row, col);
+            }
+         }
+      }
+      return cells;
+   }
+
+   /**
+    * @return  true if the location, taken to be the player's, is part of a
+    *             line of the player's in any direction
+    */
+   private static boolean lineThrough(Bitboard board, int row, int col,
+         int id) {
+      int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+      for (int[] d : directions) {
+         int run = 1;
+         for (int sign = -1; sign <= 1; sign += 2) {
+            int r = row + sign * d[0];
+            int c = col + sign * d[1];
+            while (board.validLocation(r, c) && board.get(r, c) == id) {
+               run++;
+               r += sign * d[0];
+               c += sign * d[1];
+            }
+         }
+         if (run >= board.connect()) {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   private static void check(boolean ok, String what, Bitboard board) {
+      if (!ok) {
+         throw new AssertionError(what + " is wrong on " + board.rows() +
+               " x " + board.columns() + ", lines of " + board.connect() +
+               ": " + board.toField());
+      }
+   }
+}
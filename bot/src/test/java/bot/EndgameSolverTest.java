@@ -0,0 +1,116 @@
+package bot;
+
+import java.util.Random;
+
+/**
+ * EndgameSolverTest class
+ *
+ * Checks the scores and moves of EndgameSolver against a plain minimax
+ *    search of the whole game tree (no pruning, no table, no move rules),
+ *    on random positions near the end of the game.
+ *
+ * Some things to note when interacting with this class.
+ *    It is a plain test class (public void test methods that throw an
+ *       AssertionError when a check fails), so surefire runs it without a
+ *       test framework.
+ *    The positions come from a fixed seed, so a failure can be reproduced.
+ *    One solver solves all the positions of a size, one after another, as
+ *       TrapBot does in a game, so answers from its table are checked too.
+ */
+public class EndgameSolverTest {
+
+   private static final int POSITIONS = 300;
+   //minimax looks at every move, so it is only run on this few
+   private static final int MAX_FREE = 10;
+   private static final long SEED = 20161016L;
+
+   public void testStandardGame() {
+      check(6, 7, 4, new Random(SEED));
+   }
+
+   public void testOtherSizes() {
+      check(5, 4, 4, new Random(SEED + 1));
+      check(4, 5, 3, new Random(SEED + 2));
+   }
+
+   private static void check(int rows, int columns, int connect,
+         Random random) {
+      Bitboard board = new Bitboard(rows, columns, connect);
+      EndgameSolver solver = new EndgameSolver(rows, columns, connect);
+      for (int i = 0; i < POSITIONS; i++) {
+         int id = position(board, 1 + random.nextInt(MAX_FREE), random);
+         int score = solver.solve(board, id);
+         int expected = minimax(board, id);
+         if (score != expected) {
+            fail("scored " + score + " instead of " + expected, board, id);
+         }
+         int col = solver.getBestMove();
+         if (col < 0 || col >= columns || board.heightOf(col) == rows) {
+            fail("chose illegal column " + col, board, id);
+         }
+         int free = Long.bitCount(board.freeMask());
+         board.play(col, id);
+         int got = board.isWin(id) ? free : -minimax(board, 3 - id);
+         board.undo(col);
+         if (got != expected) {
+            fail("chose column " + col + " that scores " + got +
+                  " instead of " + expected, board, id);
+         }
+      }
+   }
+
+   /**
+    * Makes the board a random position that nobody has won, with the given
+    *    number of free locations (or as close as the dice allow).
+    *
+    * @return  the id of the player to move
+    */
+   private static int position(Bitboard board, int free, Random random) {
+      while (true) {
+         board.clear();
+         int id = 1;
+         int discs = board.rows() * board.columns() - free;
+         boolean won = false;
+         for (int i = 0; i < discs && !won; i++) {
+            long legal = board.legalMoves();
+            int skip = random.nextInt(Long.bitCount(legal));
+            for (int j = 0; j < skip; j++) {
+               legal &= legal - 1;
+            }
+            board.play(board.column(Long.numberOfTrailingZeros(legal)), id);
+            won = board.isWin(id);
+            id = 3 - id;
+         }
+         if (!won) {
+            return id;
+         }
+      }
+   }
+
+   /**
+    * @return  the score of the position for the player to move, as
+    *             EndgameSolver scores it: a win scores the free locations
+    *             left before the winning disc, a loss the opposite, a draw 0
+    */
+   private static int minimax(Bitboard board, int id) {
+      long legal = board.legalMoves();
+      if (legal == 0) {
+         return 0;
+      }
+      int free = Long.bitCount(board.freeMask());
+      int best = Integer.MIN_VALUE;
+      for (; legal != 0; legal &= legal - 1) {
+         int col = board.column(Long.numberOfTrailingZeros(legal));
+         board.play(col, id);
+         int score = board.isWin(id) ? free : -minimax(board, 3 - id);
+         board.undo(col);
+         best = Math.max(best, score);
+      }
+      return best;
+   }
+
+   private static void fail(String what, Bitboard board, int id) {
+      throw new AssertionError("the solver " + what + " for player " + id +
+            " in " + board.toField());
+   }
+}
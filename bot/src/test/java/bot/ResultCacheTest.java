@@ -0,0 +1,228 @@
+package bot;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * ResultCacheTest class
+ *
+ * Checks that ResultCache answers a position (or its mirror image) with the
+ *    move put in it, keeps its moves in its file from run to run, keeps the
+ *    file small, and refuses a file that is not its own.
+ *
+ * Some things to note when interacting with this class.
+ *    It is a plain test class (public void test methods that throw an
+ *       AssertionError when a check fails), so surefire runs it without a
+ *       test framework.
+ *    The positions and moves come from a fixed seed, so a failure can be
+ *       reproduced. Each test works in a file of its own in the temporary
+ *       directory, and deletes it.
+ */
+public class ResultCacheTest {
+
+   private static final int ROWS = 6;
+   private static final int COLUMNS = 7;
+   private static final int CONNECT = 4;
+   private static final long SEED = 20161016L;
+   //MAGIC, the name "trap" and the size of the field
+   private static final int HEADER_BYTES = 4 + 2 + 4 + 3 * 4;
+   private static final int RECORD_BYTES = 8 + 1 + 1;
+
+   public void testMirrorImage() {
+      ResultCache cache = new ResultCache("trap", ROWS, COLUMNS, CONNECT,
+            1 << 10);
+      Random random = new Random(SEED);
+      for (int i = 0; i < 1000; i++) {
+         Bitboard board = position(random);
+         int id = 1 + random.nextInt(2);
+         int column = random.nextInt(COLUMNS);
+         cache.put(board, id, column);
+         check(cache.get(board, id) == column, "the move put", board);
+         Bitboard mirror = mirror(board);
+         if (mirror.key() != board.key()) {//a symmetric field has one move
+            check(cache.get(mirror, id) == COLUMNS - 1 - column,
+                  "the mirrored move", board);
+         }
+      }
+   }
+
+   public void testReopen() throws IOException {
+      File file = tempFile();
+      try {
+         ResultCache cache = ResultCache.open(file, "trap", ROWS, COLUMNS,
+               CONNECT, 1 << 12);
+         Random random = new Random(SEED);
+         List<Bitboard> boards = new ArrayList<Bitboard>();
+         List<Integer> ids = new ArrayList<Integer>();
+         for (int game = 0; game < 50; game++) {
+            for (int i = 0; i < 10; i++) {
+               Bitboard board = position(random);
+               int id = 1 + random.nextInt(2);
+               cache.put(board, id, random.nextInt(COLUMNS));
+               boards.add(board);
+               ids.add(id);
+            }
+            cache.flush();
+         }
+         ResultCache again = ResultCache.open(file, "trap", ROWS, COLUMNS,
+               CONNECT, 1 << 12);
+         check(again.size() == cache.size(), "the size", null);
+         for (int i = 0; i < boards.size(); i++) {
+            Bitboard board = boards.get(i);
+            int id = ids.get(i);
+            check(again.get(board, id) == cache.get(board, id),
+                  "the move read back", board);
+         }
+         //a record cut short by a game that ended while it was written
+         FileOutputStream out = new FileOutputStream(file, true);
+         try {
+            out.write(new byte[] {1, 2, 3});
+         } finally {
+            out.close();
+         }
+         again = ResultCache.open(file, "trap", ROWS, COLUMNS, CONNECT,
+               1 << 12);
+         check(again.size() == cache.size(), "the size after a cut", null);
+      } finally {
+         file.delete();
+      }
+   }
+
+   public void testFlushCompacts() throws IOException {
+      File file = tempFile();
+      try {
+         int capacity = 64;
+         ResultCache cache = ResultCache.open(file, "trap", ROWS, COLUMNS,
+               CONNECT, capacity);
+         Random random = new Random(SEED);
+         for (int game = 0; game < 100; game++) {
+            for (int i = 0; i < 20; i++) {
+               cache.put(position(random), 1 + random.nextInt(2),
+                     random.nextInt(COLUMNS));
+            }
+            cache.flush();
+            long records = (file.length() - HEADER_BYTES) / RECORD_BYTES;
+            check(records <= 2 * capacity, "the file after game " + game +
+                  " (" + records + " records)", null);
+         }
+         ResultCache again = ResultCache.open(file, "trap", ROWS, COLUMNS,
+               CONNECT, capacity);
+         check(again.size() == cache.size(), "the size", null);
+      } finally {
+         file.delete();
+      }
+   }
+
+   public void testRefusesOtherFiles() throws IOException {
+      File file = tempFile();
+      try {
+         DataOutputStream out = new DataOutputStream(
+               new FileOutputStream(file));
+         try {
+            out.writeInt(ResultCache.MAGIC);
+            out.writeUTF("other");
+            out.writeInt(ROWS);
+            out.writeInt(COLUMNS);
+            out.writeInt(CONNECT);
+         } finally {
+            out.close();
+         }
+         refused(file, ROWS, COLUMNS, "another bot's file");
+         file.delete();
+         ResultCache cache = ResultCache.open(file, "trap", ROWS, COLUMNS,
+               CONNECT, 1 << 10);
+         cache.put(new Bitboard(ROWS, COLUMNS, CONNECT), 1, 3);
+         cache.flush();
+         refused(file, ROWS + 1, COLUMNS + 1, "another game's file");
+      } finally {
+         file.delete();
+      }
+   }
+
+   public void testRefusesClockBots() throws IOException {
+      File file = tempFile();
+      try {
+         for (String bot : new String[] {"search", "ponder", "mcts"}) {
+            check(!ResultCache.canCache(bot), "canCache(" + bot + ")",
+                  null);
+            try {
+               ResultCache.open(file, bot, ROWS, COLUMNS, CONNECT, 1 << 10);
+               throw new AssertionError("a cache was opened for " + bot);
+            } catch (IllegalArgumentException e) {
+               //expected
+            }
+         }
+      } finally {
+         file.delete();
+      }
+   }
+
+   private static void refused(File file, int rows, int columns,
+         String what) {
+      try {
+         ResultCache.open(file, "trap", rows, columns, CONNECT, 1 << 10);
+      } catch (IOException e) {
+         return;
+      }
+      throw new AssertionError(what + " was opened");
+   }
+
+   /**
+    * @return  a field with random discs dropped into random columns, that
+    *             nobody has won and that is not full
+    */
+   private static Bitboard position(Random random) {
+      Bitboard board = new Bitboard(ROWS, COLUMNS, CONNECT);
+      int discs = random.nextInt(ROWS * COLUMNS - 1);
+      int id = 1;
+      for (int i = 0; i < discs; i++) {
+         long legal = board.legalMoves();
+         int skip = random.nextInt(Long.bitCount(legal));
+         for (int j = 0; j < skip; j++) {
+            legal &= legal - 1;
+         }
+         int col = board.column(Long.numberOfTrailingZeros(legal));
+         board.play(col, id);
+         if (board.isWin(id)) {
+            board.undo(col);
+            break;
+         }
+         id = 3 - id;
+      }
+      return board;
+   }
+
+   /**
+    * @return  the board's mirror image (column c is column COLUMNS-1-c)
+    */
+   private static Bitboard mirror(Bitboard board) {
+      Bitboard mirror = new Bitboard(ROWS, COLUMNS, CONNECT);
+      for (int row = 0; row < ROWS; row++) {
+         for (int col = 0; col < COLUMNS; col++) {
+            if (board.get(row, col) != 0) {
+               mirror.set(row, COLUMNS - 1 - col, board.get(row, col));
+            }
+         }
+      }
+      return mirror;
+   }
+
+   private static File tempFile() throws IOException {
+      File file = File.createTempFile("result-cache", ".bin");
+      //open makes the file itself, with its header
+      file.delete();
+      return file;
+   }
+
+   private static void check(boolean ok, String what, Bitboard board) {
+      if (!ok) {
+         throw new AssertionError(what + " is wrong" +
+               (board == null ? "" : " on " + board.toField()));
+      }
+   }
+}
@@ -0,0 +1,124 @@
+package bot;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Random;
+
+/**
+ * TrapBotTest class
+ *
+ * Checks that TrapBot still plays the moves it has always played: 40000
+ *    random fields (20000 fields from a fixed seed, each with both players
+ *    to move) are parsed and played, and every move is compared with the
+ *    one in trapbot-moves.txt. Rewrites of TrapBot that are meant to make
+ *    it faster (bitboards, LineCounts, ThreatAnalyzer, ...) must not change
+ *    a single move.
+ *
+ * Some things to note when interacting with this class.
+ *    It is a plain test class (public void test methods that throw an
+ *       AssertionError when a check fails), so surefire runs it without a
+ *       test framework.
+ *    trapbot-moves.txt holds one digit per move, in the order the fields
+ *       are made, 100 to a line. A change that is meant to change TrapBot's
+ *       play has to write it again.
+ *    The fields are made by dropping discs into random columns, so some of
+ *       them are already won, or could not come up in a game; TrapBot has to
+ *       answer them the same way all the same.
+ */
+public class TrapBotTest {
+
+   private static final String MOVES = "/trapbot-moves.txt";
+   private static final int FIELDS = 20000;
+   private static final long SEED = 42L;
+   private static final int ROWS = 6;
+   private static final int COLUMNS = 7;
+   //the most discs dropped into a field (some fall on full columns)
+   private static final int MAX_PLIES = 40;
+
+   public void testMovesUnchanged() throws IOException {
+      String expected = readMoves();
+      Random random = new Random(SEED);
+      int move = 0;
+      for (int i = 0; i < FIELDS; i++) {
+         String field = randomField(random);
+         if (field == null) {
+            continue;//full: there is no move to make
+         }
+         for (int id = 1; id <= 2; id++) {
+            TrapBot bot = new TrapBot(ROWS, COLUMNS);
+            bot.myID = id;
+            bot.parse(field);
+            int column = bot.makeTurn();
+            if (move >= expected.length()) {
+               throw new AssertionError("more moves than " + MOVES);
+            }
+            int want = expected.charAt(move) - '0';
+            if (column != want) {
+               throw new AssertionError("move " + move + ": played " +
+                     column + " instead of " + want + " for player " + id +
+                     " in " + field);
+            }
+            move++;
+         }
+      }
+      if (move != expected.length()) {
+         throw new AssertionError("fewer moves than " + MOVES);
+      }
+   }
+
+   /**
+    * @return  a field in the engine's format with random discs dropped in,
+    *             or null if it is full
+    */
+   private static String randomField(Random random) {
+      int[][] field = new int[ROWS][COLUMNS];
+      int[] heights = new int[COLUMNS];
+      int plies = random.nextInt(MAX_PLIES);
+      int id = 1;
+      for (int p = 0; p < plies; p++) {
+         int col = random.nextInt(COLUMNS);
+         if (heights[col] == ROWS) {
+            continue;
+         }
+         field[ROWS - 1 - heights[col]][col] = id;
+         heights[col]++;
+         id = 3 - id;
+      }
+      boolean open = false;
+      StringBuilder s = new StringBuilder();
+      for (int row = 0; row < ROWS; row++) {
+         if (row > 0) {
+            s.append(';');
+         }
+         for (int col = 0; col < COLUMNS; col++) {
+            if (col > 0) {
+               s.append(',');
+            }
+            s.append(field[row][col]);
+            open |= heights[col] < ROWS;
+         }
+      }
+      return open ? s.toString() : null;
+   }
+
+   private static String readMoves() throws IOException {
+      InputStream in = TrapBotTest.class.getResourceAsStream(MOVES);
+      if (in == null) {
+         throw new AssertionError("missing " + MOVES);
+      }
+      BufferedReader reader = new BufferedReader(
+            new InputStreamReader(in, "US-ASCII"));
+      StringBuilder moves = new StringBuilder();
+      try {
+         String line;
+         while ((line = reader.readLine()) != null) {
+            moves.append(line.trim());
+         }
+      } finally {
+         reader.close();
+      }
+      return moves.toString();
+   }
+}